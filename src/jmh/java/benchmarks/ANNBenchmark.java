@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.Board;
+import utils.ANNUtils.ANNVector;
+import utils.ANNUtils.BetterVector;
+import utils.ANNUtils.SimpleANN;
+
+/**
+ * Benchmarks of the evaluation network and its input vectors. The network has
+ * the same shape as the one MCT loads, with random weights, so no model file is
+ * needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ANNBenchmark {
+
+    /** The number of positions in a batch, as MCT's EvaluationQueue would gather */
+    private static final int BATCH = 8;
+
+    @Param({ Positions.START, Positions.MIDDLEGAME, Positions.W2M1582108 })
+    public String position;
+
+    private Board board;
+
+    private SimpleANN ann;
+
+    private double[][] batch;
+
+    @Setup
+    public void setup() {
+        this.board = Positions.get(this.position);
+        this.ann = new SimpleANN(834, 418, 1);
+        this.batch = new double[BATCH][];
+        for (int i = 0; i < BATCH; i++) {
+            this.batch[i] = ANNVector.createVector(this.board);
+        } // for
+    } // setup()
+
+    @Benchmark
+    public double[] createVectorAndPredict() {
+        return this.ann.predict(ANNVector.createVector(this.board));
+    } // createVectorAndPredict()
+
+    /** Scored per position, so it compares directly with a single predict */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[][] predictBatch() {
+        return this.ann.predict(this.batch);
+    } // predictBatch()
+
+    @Benchmark
+    public double[] betterVector() {
+        return new BetterVector().createVector(this.board);
+    } // betterVector()
+} // class ANNBenchmark
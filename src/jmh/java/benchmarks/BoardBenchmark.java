@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import utils.Board;
+import utils.Move;
+import utils.PieceMoves;
+import utils.PieceTypes;
+
+/**
+ * Benchmarks of the board representation and move generation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({ Positions.START, Positions.MIDDLEGAME, Positions.W2M1582108, Positions.FOOLS_MATE })
+    public String position;
+
+    private Board board;
+
+    private Move move;
+
+    private Random rand;
+
+    @Setup
+    public void setup() {
+        this.board = Positions.get(this.position);
+        Move[] moves = this.board.nextMoves();
+        this.move = (moves.length > 0) ? moves[0] : null;
+        this.rand = new Random(42);
+    } // setup()
+
+    @Benchmark
+    public int getSquare() {
+        int sum = 0;
+        for (int square = 0; square < 64; square++) {
+            sum += this.board.getSquare(square);
+        } // for
+        return sum;
+    } // getSquare()
+
+    @Benchmark
+    public void setSquare() {
+        /* Lift every piece off and put it back, leaving the board unchanged */
+        for (int square = 0; square < 64; square++) {
+            byte piece = this.board.getSquare(square);
+            this.board.setSquare(square, PieceTypes.EMPTY);
+            this.board.setSquare(square, piece);
+        } // for
+    } // setSquare()
+
+    @Benchmark
+    public Move[] nextMoves() {
+        return this.board.nextMoves();
+    } // nextMoves()
+
+    @Benchmark
+    public void movePiece(Blackhole hole) {
+        if (this.move != null) {
+            hole.consume(PieceMoves.movePiece(this.move, this.board));
+        } // if
+    } // movePiece(Blackhole)
+
+    @Benchmark
+    public Move ranNextMove() {
+        return this.board.ranNextMove(this.rand);
+    } // ranNextMove()
+} // class BoardBenchmark
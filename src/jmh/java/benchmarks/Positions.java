@@ -0,0 +1,45 @@
+package benchmarks;
+
+import utils.Board;
+import utils.PieceTypes;
+import utils.ReadFEN;
+import utils.setBoards;
+
+/**
+ * The fixed positions the benchmarks run on, by name, so results can be
+ * compared from run to run.
+ */
+public class Positions {
+
+    /** The names accepted by get, for use in a benchmark's @Param. */
+    public static final String START = "start";
+    public static final String MIDDLEGAME = "middlegame";
+    public static final String W2M1582108 = "W2M1582108";
+    public static final String FOOLS_MATE = "foolsMate";
+
+    /**
+     * Builds a fresh board for a named position.
+     *
+     * @param name One of the names above
+     * @return The position
+     */
+    public static Board get(String name) {
+        switch (name) {
+            case START -> {
+                Board board = new Board(PieceTypes.WHITE, PieceTypes.WHITE);
+                board.startingPos();
+                return board;
+            }
+            case MIDDLEGAME -> {
+                return ReadFEN.readFEN("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+            }
+            case W2M1582108 -> {
+                return setBoards.setBoardW2M1582108();
+            }
+            case FOOLS_MATE -> {
+                return setBoards.setBoardFoolsMate();
+            }
+            default -> throw new IllegalArgumentException("Unknown position: " + name);
+        } // switch
+    } // get(String)
+} // class Positions
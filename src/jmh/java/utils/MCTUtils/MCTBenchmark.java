@@ -0,0 +1,46 @@
+package utils.MCTUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import benchmarks.Positions;
+import utils.Board;
+
+/**
+ * Benchmarks a single MCT rollout. It lives in MCT's package since simulate
+ * isn't public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MCTBenchmark {
+
+    @Param({ Positions.START, Positions.MIDDLEGAME, Positions.W2M1582108 })
+    public String position;
+
+    private Board board;
+
+    @Setup
+    public void setup() {
+        this.board = Positions.get(this.position);
+    } // setup()
+
+    @Benchmark
+    public simResultMCT simulate() {
+        return MCT.simulate(this.board);
+    } // simulate()
+} // class MCTBenchmark
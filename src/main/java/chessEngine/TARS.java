@@ -19,7 +19,7 @@ import org.nd4j.linalg.lossfunctions.LossFunctions;
 import utils.ANNUtils.BetterVector;
 import utils.ANNUtils.boardResult;
 import utils.Board;
-import utils.Move;
+import utils.PackedMove;
 import utils.PieceMoves;
 import utils.PieceTypes;
 import utils.setBoards;
@@ -36,12 +36,12 @@ public class TARS {
         int depthThresh = 255;
 
         while (true) {
-            Move nextMove = board.ranNextMove(rand);
+            int nextMove = board.ranNextPackedMove(rand);
 
             /*
              * If the game is checkmate/stalemate or if the depth is too far, end the game
              */
-            if (nextMove == null || depth++ > depthThresh) {
+            if (nextMove == PackedMove.NONE || depth++ > depthThresh) {
                 double vicPoints = board.vicPoints();
                 if (board.engineColor == PieceTypes.BLACK) {
                     vicPoints = 1 - vicPoints;
@@ -6,6 +6,10 @@ import java.util.Scanner;
 
 import utils.Board;
 import utils.MCTUtils.MCT;
+import utils.MCTUtils.MCTPPR;
+import utils.MCTUtils.MCTPUCT;
+import utils.MCTUtils.MCTRAVE;
+import utils.MCTUtils.SearchConfig;
 import utils.Move;
 import utils.PieceMoves;
 import utils.PieceTypes;
@@ -37,7 +41,7 @@ public class midBot {
 
         
 
-        pen.println("Enter engine selection process (RAVE/UCT)");
+        pen.println("Enter engine selection process (RAVE/UCT/PUCT/PPR)");
 
         input = eyes.nextLine();
         String searchType = input;
@@ -61,26 +65,24 @@ public class midBot {
             playingBoard = PieceMoves.movePiece(nextMove, playingBoard);
             playingBoard.turnColor = playingBoard.oppColor();
         }
+        /* The tree is kept from move to move, re-rooted on the position played */
+        MCT searchTree;
+        switch (searchType) {
+            case "RAVE" -> searchTree = new MCTRAVE(playingBoard);
+            case "UCT" -> searchTree = new MCT(playingBoard);
+            case "PUCT" -> searchTree = new MCTPUCT(playingBoard);
+            default -> searchTree = new MCTPPR(playingBoard);
+        } // switch
+
+        /* Let the search stop early on a settled move, or run on while the top two are close */
+        SearchConfig config = new SearchConfig();
+        config.manageTime = true;
         while (!input.equals("QUIT")) {
             pen.println("----------------");
-            //MCTRAVE searchTreeRAVE;
-            MCT searchTreeUCT = new MCT(playingBoard);
-            playingBoard = searchTreeUCT.search(duration);
-            //MCTPPR searchTreePPR;
-            // switch (searchType) {
-            //     case "RAVE" -> {
-            //         searchTreeRAVE = new MCTRAVE(playingBoard);
-            //         playingBoard = searchTreeRAVE.search(duration);
-            //     }
-            //     case "UCT" -> {
-            //         searchTreeUCT = new MCT(playingBoard);
-            //         playingBoard = searchTreeUCT.search(duration);
-            //     }
-            //     default -> {
-            //         searchTreePPR = new MCTPPR(playingBoard);
-            //         playingBoard = searchTreePPR.search(duration);
-            //     }
-            // }
+            if (searchTree.advance(playingBoard)) {
+                pen.println("Reusing " + searchTree.rootPlayOuts() + " simulated games.");
+            } // if
+            playingBoard = searchTree.search(duration, config);
 
             if (playingBoard == null) {
                 pen.println("Game Over.");
@@ -4,7 +4,7 @@ import java.util.Arrays;
 import java.util.Random;
 
 import utils.Board;
-import utils.Move;
+import utils.PackedMove;
 import utils.PieceMoves;
 import utils.PieceTypes;
 
@@ -29,12 +29,12 @@ public class ANNTrainer {
         int depthThresh = 400;
 
         while (true) {
-            Move nextMove = board.ranNextMove(rand);
+            int nextMove = board.ranNextPackedMove(rand);
 
             /*
              * If the game is checkmate/stalemate or if the depth is too far, end the game
              */
-            if (nextMove == null || depth++ > depthThresh) {
+            if (nextMove == PackedMove.NONE || depth++ > depthThresh) {
                 double vicPoints = board.vicPoints();
                 for (int i = 0; i < resNum; i++) {
                     res[i].vicPoints = vicPoints;
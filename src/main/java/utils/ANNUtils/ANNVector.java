@@ -9,19 +9,20 @@ public class ANNVector {
     public static double[] createVector(Board board) {
         /* We have 13 possible pieces and 64 squares + xtra data */
         int inputSize = 834;
-        int index = 0;
 
         double[] vector = new double[inputSize];
 
-        for (int i = 0; i < 64; i++) {
-            byte piece = board.getSquare(i);
-            for (int j = 0; j < 7; j++) {
-                vector[index++] = (piece == j) ? 1.0 : 0.0;
-            } //for
-            for (int j = 9; j < 15; j++) {
-                vector[index++] = (piece == j) ? 1.0 : 0.0;
+        /* Each square has 13 slots: empty, the six white pieces, then the six black pieces */
+        for (long empty = ~board.getOccupied(); empty != 0; empty &= empty - 1) {
+            vector[Long.numberOfTrailingZeros(empty) * 13] = 1.0;
+        } //for
+        for (byte piece = PieceTypes.WHITE_PAWN; piece <= PieceTypes.BLACK_KING; piece++) {
+            int slot = (piece < PieceTypes.BLACK_PAWN) ? piece : piece - 2;
+            for (long pieces = board.getPieces(piece); pieces != 0; pieces &= pieces - 1) {
+                vector[Long.numberOfTrailingZeros(pieces) * 13 + slot] = 1.0;
             } //for
         } //for
+        int index = 64 * 13;
 
         vector[index++] = (board.engineColor == PieceTypes.WHITE) ? 0.0 : 1.0;
         vector[index++] = (board.turnColor == PieceTypes.WHITE) ? 0.0 : 1.0;
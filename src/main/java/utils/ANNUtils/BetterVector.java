@@ -130,22 +130,16 @@ public class BetterVector {
     }
 
     public void setPieceCounts(Board board) {
-        for (int i = 0; i < 64; i++) {
-            byte piece = board.getSquare(i);
-
-            switch (piece) {
-                case PieceTypes.WHITE_PAWN -> this.vec[PAWN_COUNT_W]++;
-                case PieceTypes.WHITE_KNIGHT -> this.vec[KNIGHT_COUNT_W]++;
-                case PieceTypes.WHITE_BISHOP -> this.vec[BISHOP_COUNT_W]++;
-                case PieceTypes.WHITE_ROOK -> this.vec[ROOK_COUNT_W]++;
-                case PieceTypes.WHITE_QUEEN -> this.vec[QUEEN_COUNT_W]++;
-                case PieceTypes.BLACK_PAWN -> this.vec[PAWN_COUNT_B]++;
-                case PieceTypes.BLACK_KNIGHT -> this.vec[KNIGHT_COUNT_B]++;
-                case PieceTypes.BLACK_BISHOP -> this.vec[BISHOP_COUNT_B]++;
-                case PieceTypes.BLACK_ROOK -> this.vec[ROOK_COUNT_B]++;
-                case PieceTypes.BLACK_QUEEN -> this.vec[QUEEN_COUNT_B]++;
-            }
-        }
+        this.vec[PAWN_COUNT_W] += Long.bitCount(board.getPieces(PieceTypes.WHITE_PAWN));
+        this.vec[KNIGHT_COUNT_W] += Long.bitCount(board.getPieces(PieceTypes.WHITE_KNIGHT));
+        this.vec[BISHOP_COUNT_W] += Long.bitCount(board.getPieces(PieceTypes.WHITE_BISHOP));
+        this.vec[ROOK_COUNT_W] += Long.bitCount(board.getPieces(PieceTypes.WHITE_ROOK));
+        this.vec[QUEEN_COUNT_W] += Long.bitCount(board.getPieces(PieceTypes.WHITE_QUEEN));
+        this.vec[PAWN_COUNT_B] += Long.bitCount(board.getPieces(PieceTypes.BLACK_PAWN));
+        this.vec[KNIGHT_COUNT_B] += Long.bitCount(board.getPieces(PieceTypes.BLACK_KNIGHT));
+        this.vec[BISHOP_COUNT_B] += Long.bitCount(board.getPieces(PieceTypes.BLACK_BISHOP));
+        this.vec[ROOK_COUNT_B] += Long.bitCount(board.getPieces(PieceTypes.BLACK_ROOK));
+        this.vec[QUEEN_COUNT_B] += Long.bitCount(board.getPieces(PieceTypes.BLACK_QUEEN));
     }
 
     public void setKingSafety(Board board) {
@@ -25,6 +25,13 @@ public class SimpleANN {
         this.biasOutput = new SimpleMatrix(output, 1);
     }
 
+    /**
+     * @return The number of outputs the network gives
+     */
+    public int outputSize() {
+        return this.weightsHiddenOutput.getNumRows();
+    }
+
     public double[] predict(double[] vector) {
         /* Create the FastMatrix and pass it through the hidden layer */
         SimpleMatrix input = new SimpleMatrix(vector.length, 1, true, vector);
@@ -40,6 +47,41 @@ public class SimpleANN {
         return output.getDDRM().getData();
     }
 
+    /**
+     * Runs several inputs through the network at once, as one matrix-matrix
+     * product per layer, so each weight is loaded once for the whole batch
+     * instead of once per input.
+     *
+     * @param vectors The inputs, all the same length
+     * @return The outputs of each input, in order
+     */
+    public double[][] predict(double[][] vectors) {
+        int batch = vectors.length;
+        int inputSize = vectors[0].length;
+
+        /* Lay the inputs out as the columns of one matrix */
+        double[] columns = new double[inputSize * batch];
+        for (int j = 0; j < batch; j++) {
+            for (int i = 0; i < inputSize; i++) {
+                columns[i * batch + j] = vectors[j][i];
+            } // for
+        } // for
+        SimpleMatrix input = new SimpleMatrix(inputSize, batch, true, columns);
+
+        SimpleMatrix hidden = this.weightsInputHidden.mult(input);
+        addBiasAndSigmoid(hidden, this.biasHidden);
+        SimpleMatrix output = this.weightsHiddenOutput.mult(hidden);
+        addBiasAndSigmoid(output, this.biasOutput);
+
+        double[][] outputs = new double[batch][output.getNumRows()];
+        for (int j = 0; j < batch; j++) {
+            for (int i = 0; i < output.getNumRows(); i++) {
+                outputs[j][i] = output.get(i, j);
+            } // for
+        } // for
+        return outputs;
+    }
+
     public void train(double[] vectorInput, double[] vectorTarget) {
         SimpleMatrix input = new SimpleMatrix(vectorInput.length, 1, true, vectorInput);
 
@@ -109,8 +151,8 @@ public class SimpleANN {
      */
     private static SimpleMatrix derivativeSigmoid(SimpleMatrix M) {
         SimpleMatrix temp = new SimpleMatrix(M);
-        for (int i = 0; i < temp.numRows(); i++) {
-            for (int j = 0; j < temp.numCols(); j++) {
+        for (int i = 0; i < temp.getNumRows(); i++) {
+            for (int j = 0; j < temp.getNumCols(); j++) {
                 double data = M.get(i, j);
                 temp.set(i, j, data * (1 - data));
             } // for
@@ -118,13 +160,28 @@ public class SimpleANN {
         return temp;
     } // derivativeSigmoid
 
+    /**
+     * Adds a column of biases to every column of a matrix and applies the
+     * sigmoid function, in place.
+     */
+    private static void addBiasAndSigmoid(SimpleMatrix M, SimpleMatrix bias) {
+        double[] data = M.getDDRM().getData();
+        int cols = M.getNumCols();
+        for (int i = 0; i < M.getNumRows(); i++) {
+            double b = bias.get(i, 0);
+            for (int j = 0; j < cols; j++) {
+                data[i * cols + j] = 1 / (1 + Math.exp(-(data[i * cols + j] + b)));
+            } // for
+        } // for
+    } // addBiasAndSigmoid
+
     /**
      * Applies the sigmoid function to the values of the matrix.
      */
     private static SimpleMatrix sigmoid(SimpleMatrix M) {
         SimpleMatrix temp = new SimpleMatrix(M);
-        for (int i = 0; i < M.numRows(); i++) {
-            for (int j = 0; j < M.numCols(); j++) {
+        for (int i = 0; i < M.getNumRows(); i++) {
+            for (int j = 0; j < M.getNumCols(); j++) {
                 double data = M.get(i, j);
                 temp.set(i, j, 1 / (1 + Math.exp(-data)));
             } // for
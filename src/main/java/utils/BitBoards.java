@@ -0,0 +1,382 @@
+package utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed attack masks and helpers for the bitboard representation.
+ * Bit i of a mask corresponds to square i (square = column * 8 + row), so
+ * moving up a row is +1 and moving over a column is +8. Slider attacks are
+ * looked up in magic bitboard tables built when the class is loaded.
+ *
+ * @author Sebastian Manza
+ */
+public class BitBoards {
+
+    /** The squares a knight on each square attacks. */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /** The squares a king on each square attacks. */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /** The squares a pawn of each color on each square attacks, indexed [color][square]. */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * Rays in each sliding direction, indexed [direction][square]. Directions 0-3
+     * increase the square index, directions 4-7 decrease it.
+     */
+    private static final long[][] RAYS = new long[8][64];
+
+    /**
+     * The squares strictly between two squares on the same line, indexed
+     * [square][square], or 0 if they don't share a line.
+     */
+    public static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * The whole line (edge to edge) through two squares, indexed
+     * [square][square], or 0 if they don't share a line.
+     */
+    public static final long[][] LINE = new long[64][64];
+
+    /** Column steps of each ray direction. */
+    private static final int[] RAY_COLS = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    /** Row steps of each ray direction. */
+    private static final int[] RAY_ROWS = { 1, 0, 1, -1, -1, 0, -1, 1 };
+
+    /** The squares whose occupancy changes a rook's attacks, for each square. */
+    private static final long[] ROOK_MASKS = new long[64];
+
+    /** The squares whose occupancy changes a bishop's attacks, for each square. */
+    private static final long[] BISHOP_MASKS = new long[64];
+
+    /**
+     * The magic multiplier of each rook square. These were found by the search in
+     * fillMagic, which is only run again if one of them stops working.
+     */
+    private static final long[] ROOK_MAGICS = {
+            0x0180002130400080L, 0x0040001000402000L, 0x0880082000100080L, 0x0900100100C82004L, 
+            0x1080028004000800L, 0x8300080100022400L, 0x0880020001000080L, 0x408002208010C100L, 
+            0x1000800090204000L, 0xC861002100804001L, 0x0002808020001000L, 0x0022000A00402010L, 
+            0x000A000600201008L, 0x0201000802040100L, 0x0024800100020080L, 0x0A82001100840042L, 
+            0x0200928000400028L, 0x04C1010020804008L, 0x4700888010042000L, 0x4888018010018008L, 
+            0x0004110005000800L, 0xA100808002000400L, 0x8822040038103102L, 0x0000020000508104L, 
+            0x2000401880002080L, 0x0880500040002000L, 0x0000200100410010L, 0x1000400A00220010L, 
+            0x0C0C001101000800L, 0x2002040080800200L, 0x0002880400010290L, 0x0309000100004082L, 
+            0x0003C00890800420L, 0x0110004001402000L, 0x6010008010802000L, 0x000A00400A001220L, 
+            0x8604000800800481L, 0x043C004100400200L, 0x2100011004004208L, 0x4000004082000124L, 
+            0x0141400020818000L, 0x0860002050004000L, 0x6081022000430010L, 0x08202200400A0012L, 
+            0x0000080004008080L, 0x0082000408020010L, 0x2100018850040002L, 0x002010A100420004L, 
+            0x0080204510800100L, 0x2044210200904200L, 0x0030802008100080L, 0x026810000A230100L, 
+            0x0001302500C80100L, 0x0430040080020080L, 0x0110021001488400L, 0x0000005084011200L, 
+            0x2086821821020042L, 0x1058400021008011L, 0x500900C208102003L, 0x400A100009002105L, 
+            0x0009009004020801L, 0x0002001001080402L, 0x080808012200B004L, 0x006004802401004EL
+    };
+
+    /** The magic multiplier of each bishop square. */
+    private static final long[] BISHOP_MAGICS = {
+            0x0020200200890214L, 0x80A0082081244091L, 0x0010210041000898L, 0x02C8060248010001L, 
+            0x310202104C430105L, 0x0100882008002002L, 0x5440480210100B02L, 0x104201C062103000L, 
+            0x0020200250020080L, 0x8860C22212020200L, 0x1020211101021012L, 0x1C410A0A120205C0L, 
+            0x0040120211042040L, 0x8804020882080201L, 0x1000110101602200L, 0x0A00010101100200L, 
+            0x8004402B10300200L, 0x8004001005584302L, 0x029000A109022102L, 0x10810420204080A0L, 
+            0x100400082208022AL, 0x0026020822100208L, 0x0201104084500210L, 0x0202902140441048L, 
+            0x2548400108020840L, 0x5009448008880810L, 0x0240411828020404L, 0x4008080000820002L, 
+            0x1221001001004000L, 0x0288020204424E02L, 0x2042660000880100L, 0x0102002480450804L, 
+            0xA00150C080103435L, 0x8004100804022220L, 0x0010280400080824L, 0x0040620080080080L, 
+            0x0201010104340040L, 0x2041500100008042L, 0x0084240081040081L, 0x8002040825110084L, 
+            0x200A10020801A104L, 0x1000882842064808L, 0x0402002201080800L, 0x0000042015041800L, 
+            0x0100012612008C00L, 0x0040251408203B02L, 0x0004100C23042044L, 0x2954008E004A8200L, 
+            0x0002280208840000L, 0x8000411410020000L, 0x0101011041101140L, 0x0000000020884010L, 
+            0x00020188030C0100L, 0x0000082028008300L, 0x0040C80841104880L, 0x0004012811110840L, 
+            0x0209860802020288L, 0x0C000080A4012001L, 0x0010830044040410L, 0x8820021128619802L, 
+            0x100144104008B200L, 0x4020200430924E00L, 0x0008401104009090L, 0x1404083004002040L
+    };
+
+    /** The shift turning a rook's magic product into a table index. */
+    private static final int[] ROOK_SHIFTS = new int[64];
+
+    /** The shift turning a bishop's magic product into a table index. */
+    private static final int[] BISHOP_SHIFTS = new int[64];
+
+    /** Where each square's entries start in the rook attack table. */
+    private static final int[] ROOK_OFFSETS = new int[64];
+
+    /** Where each square's entries start in the bishop attack table. */
+    private static final int[] BISHOP_OFFSETS = new int[64];
+
+    /** The rook attacks of every square and relevant occupancy. */
+    private static final long[] ROOK_TABLE;
+
+    /** The bishop attacks of every square and relevant occupancy. */
+    private static final long[] BISHOP_TABLE;
+
+    /**
+     * The seed for the magic number search, fixed so every run builds the same
+     * tables.
+     */
+    private static final long MAGIC_SEED = 0x5EBA57A1L;
+
+    static {
+        int[][] knightSteps = { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 },
+                { 1, -2 }, { 1, 2 }, { 2, -1 }, { 2, 1 } };
+        for (int square = 0; square < 64; square++) {
+            int col = square >> 3;
+            int row = square & 7;
+
+            for (int[] step : knightSteps) {
+                KNIGHT_ATTACKS[square] |= bit(col + step[0], row + step[1]);
+            } // for
+
+            for (int dCol = -1; dCol <= 1; dCol++) {
+                for (int dRow = -1; dRow <= 1; dRow++) {
+                    if (dCol != 0 || dRow != 0) {
+                        KING_ATTACKS[square] |= bit(col + dCol, row + dRow);
+                    } // if
+                } // for
+            } // for
+
+            PAWN_ATTACKS[PieceTypes.WHITE][square] = bit(col - 1, row + 1) | bit(col + 1, row + 1);
+            PAWN_ATTACKS[PieceTypes.BLACK][square] = bit(col - 1, row - 1) | bit(col + 1, row - 1);
+
+            for (int dir = 0; dir < 8; dir++) {
+                for (int step = 1; step < 8; step++) {
+                    long target = bit(col + step * RAY_COLS[dir], row + step * RAY_ROWS[dir]);
+                    if (target == 0) {
+                        break;
+                    } // if
+                    RAYS[dir][square] |= target;
+                } // for
+            } // for
+        } // for
+
+        /* A square's rays in opposite directions are dir and dir ^ 4 */
+        for (int square = 0; square < 64; square++) {
+            for (int dir = 0; dir < 8; dir++) {
+                long line = RAYS[dir][square] | RAYS[dir ^ 4][square] | (1L << square);
+                for (long targets = RAYS[dir][square]; targets != 0; targets &= targets - 1) {
+                    int target = Long.numberOfTrailingZeros(targets);
+                    BETWEEN[square][target] = RAYS[dir][square] & ~RAYS[dir][target] & ~(1L << target);
+                    LINE[square][target] = line;
+                } // for
+            } // for
+        } // for
+
+        /* The edge of a ray never blocks anything behind it, so leave it out of the masks */
+        long edges = 0;
+        for (int square = 0; square < 64; square++) {
+            if ((square >> 3) == 0 || (square >> 3) == 7 || (square & 7) == 0 || (square & 7) == 7) {
+                edges |= 1L << square;
+            } // if
+        } // for
+        int rookSize = 0;
+        int bishopSize = 0;
+        for (int square = 0; square < 64; square++) {
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = RAYS[dir][square];
+                /* Drop the last square of the ray, which is always on the edge */
+                long end = (dir < 4) ? Long.highestOneBit(ray) : Long.lowestOneBit(ray);
+                if (dir == 0 || dir == 1 || dir == 4 || dir == 5) {
+                    ROOK_MASKS[square] |= ray & ~end;
+                } else {
+                    BISHOP_MASKS[square] |= ray & ~end & ~edges;
+                } // if/else
+            } // for
+            ROOK_OFFSETS[square] = rookSize;
+            rookSize += 1 << Long.bitCount(ROOK_MASKS[square]);
+            BISHOP_OFFSETS[square] = bishopSize;
+            bishopSize += 1 << Long.bitCount(BISHOP_MASKS[square]);
+        } // for
+
+        ROOK_TABLE = new long[rookSize];
+        BISHOP_TABLE = new long[bishopSize];
+        SplittableRandom random = new SplittableRandom(MAGIC_SEED);
+        for (int square = 0; square < 64; square++) {
+            fillMagic(square, true, random);
+            fillMagic(square, false, random);
+        } // for
+    } // static
+
+    /**
+     * Fills a square's part of the attack table using its magic multiplier. If
+     * the multiplier maps two occupancies with different attacks to the same
+     * slot, a new one is searched for.
+     *
+     * @param square The square of the slider
+     * @param rook   true for rook attacks, false for bishop attacks
+     * @param random The random source for magic candidates
+     */
+    private static void fillMagic(int square, boolean rook, SplittableRandom random) {
+        long mask = rook ? ROOK_MASKS[square] : BISHOP_MASKS[square];
+        long[] table = rook ? ROOK_TABLE : BISHOP_TABLE;
+        int offset = rook ? ROOK_OFFSETS[square] : BISHOP_OFFSETS[square];
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+
+        /* Enumerate every subset of the mask along with its attacks */
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = rook ? slowRookAttacks(square, subset) : slowBishopAttacks(square, subset);
+            subset = (subset - mask) & mask;
+        } // for
+
+        long[] used = new long[size];
+        int[] usedBy = new int[size];
+        int attempt = 0;
+        long magic = rook ? ROOK_MAGICS[square] : BISHOP_MAGICS[square];
+        while (true) {
+            attempt++;
+            if (attempt > 1) {
+                magic = random.nextLong() & random.nextLong() & random.nextLong();
+                /* Sparse candidates that don't spread the mask into the top byte never work */
+                if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                    continue;
+                } // if
+            } // if
+
+            boolean works = true;
+            for (int i = 0; i < size && works; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (usedBy[index] != attempt) {
+                    usedBy[index] = attempt;
+                    used[index] = attacks[i];
+                } else if (used[index] != attacks[i]) {
+                    works = false;
+                } // if/else
+            } // for
+
+            if (works) {
+                System.arraycopy(used, 0, table, offset, size);
+                if (rook) {
+                    ROOK_MAGICS[square] = magic;
+                    ROOK_SHIFTS[square] = 64 - bits;
+                } else {
+                    BISHOP_MAGICS[square] = magic;
+                    BISHOP_SHIFTS[square] = 64 - bits;
+                } // if/else
+                return;
+            } // if
+        } // while
+    } // fillMagic(int, boolean, SplittableRandom)
+
+    /**
+     * Gets the mask of a square given by column and row, or 0 if it is off the
+     * board.
+     *
+     * @param col The column (0-7)
+     * @param row The row (0-7)
+     * @return A mask with just that square set
+     */
+    private static long bit(int col, int row) {
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            return 0L;
+        } // if
+        return 1L << (col * 8 + row);
+    } // bit(int, int)
+
+    /**
+     * Calculates the attacks of a slider along one ray, stopping at (and
+     * including) the first occupied square.
+     *
+     * @param dir      The ray direction
+     * @param square   The square the slider is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares along the ray
+     */
+    private static long rayAttacks(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        } // if
+        int blocker = (dir < 4) ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[dir][blocker];
+    } // rayAttacks(int, int, long)
+
+    /**
+     * Calculates the squares a rook attacks by walking its rays. Only used to
+     * build the magic tables.
+     *
+     * @param square   The square the rook is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares
+     */
+    private static long slowRookAttacks(int square, long occupied) {
+        return rayAttacks(0, square, occupied) | rayAttacks(1, square, occupied)
+                | rayAttacks(4, square, occupied) | rayAttacks(5, square, occupied);
+    } // slowRookAttacks(int, long)
+
+    /**
+     * Calculates the squares a bishop attacks by walking its rays. Only used to
+     * build the magic tables.
+     *
+     * @param square   The square the bishop is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares
+     */
+    private static long slowBishopAttacks(int square, long occupied) {
+        return rayAttacks(2, square, occupied) | rayAttacks(3, square, occupied)
+                | rayAttacks(6, square, occupied) | rayAttacks(7, square, occupied);
+    } // slowBishopAttacks(int, long)
+
+    /**
+     * Looks up the squares a rook attacks.
+     *
+     * @param square   The square the rook is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares
+     */
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    } // rookAttacks(int, long)
+
+    /**
+     * Looks up the squares a bishop attacks.
+     *
+     * @param square   The square the bishop is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    } // bishopAttacks(int, long)
+
+    /**
+     * Calculates the squares a queen attacks.
+     *
+     * @param square   The square the queen is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    } // queenAttacks(int, long)
+
+    /**
+     * Gets the squares attacked from a square by a specific piece.
+     *
+     * @param piece    The piece (defined in PieceTypes)
+     * @param square   The square the piece is on
+     * @param occupied The occupied squares on the board
+     * @return The attacked squares
+     */
+    public static long attacks(byte piece, int square, long occupied) {
+        return switch (piece) {
+            case PieceTypes.WHITE_PAWN -> PAWN_ATTACKS[PieceTypes.WHITE][square];
+            case PieceTypes.BLACK_PAWN -> PAWN_ATTACKS[PieceTypes.BLACK][square];
+            case PieceTypes.WHITE_KNIGHT, PieceTypes.BLACK_KNIGHT -> KNIGHT_ATTACKS[square];
+            case PieceTypes.WHITE_BISHOP, PieceTypes.BLACK_BISHOP -> bishopAttacks(square, occupied);
+            case PieceTypes.WHITE_ROOK, PieceTypes.BLACK_ROOK -> rookAttacks(square, occupied);
+            case PieceTypes.WHITE_QUEEN, PieceTypes.BLACK_QUEEN -> queenAttacks(square, occupied);
+            case PieceTypes.WHITE_KING, PieceTypes.BLACK_KING -> KING_ATTACKS[square];
+            default -> 0L;
+        }; // switch
+    } // attacks(byte, int, long)
+
+} // BitBoards
@@ -8,18 +8,32 @@ import java.util.Random;
 public class Board {
 
     /**
-     * An integer representing the number of columns.
+     * The bitboard of each piece type, indexed by the piece (defined in
+     * PieceTypes). Bit i is set if the piece is on square i.
      */
-    private static final int NUM_COLS = 8;
+    long[] pieceBoards = new long[16];
+
+    /**
+     * The bitboard of all pieces of each color, indexed by the color.
+     */
+    long[] colorBoards = new long[2];
+
     /**
-     * An integer representing the number of rows.
+     * The bitboard of every occupied square.
      */
-    private static final int NUM_ROWS = 4;
+    long occupied;
 
     /**
-     * The game board.
+     * The piece on each square, kept alongside the bitboards so single squares
+     * can be read without searching every piece type.
      */
-    byte[][] board = new byte[NUM_COLS][NUM_ROWS];
+    byte[] squares = new byte[64];
+
+    /**
+     * The Zobrist key of the piece placement alone, updated as squares are set.
+     * See zobristKey for the full key.
+     */
+    long pieceKey;
 
     /**
      * The color of the turn
@@ -55,6 +69,30 @@ public class Board {
 
     public int blackKingSquare;
 
+    /**
+     * The square a pawn just passed over with a double move, which an opposing
+     * pawn can capture onto en passant, or -1 if there is none.
+     */
+    public int enPassantSquare;
+
+    /**
+     * The information needed to undo each move made with makeMove, packed by
+     * packUndo. Allocated the first time a move is made.
+     */
+    private int[] undoStack;
+
+    /** The packed moves made with makeMove, in the order they were made. */
+    private int[] moveStack;
+
+    /** The number of moves that can currently be undone. */
+    private int undoCount;
+
+    /**
+     * A reusable move list for each ply below this board, so generating moves
+     * doesn't allocate. Allocated the first time moves are generated.
+     */
+    private MoveList[] moveLists;
+
     /**
      * Builds a new board representing the games current state.
      *
@@ -71,6 +109,7 @@ public class Board {
         this.canCastle = true;
         this.whiteKingSquare = 32;
         this.blackKingSquare = 39;
+        this.enPassantSquare = -1;
     } // Board()
 
     /**
@@ -80,20 +119,29 @@ public class Board {
      * @param piece  The piece type (defined in PieceTypes)
      */
     public void setSquare(int square, byte piece) {
-        /* Interpret the row and column based off of the square */
-        int col = square >> 3;
-        int row = (square & 7) >> 1;
+        long mask = 1L << square;
+        byte oldPiece = this.squares[square];
 
-        /*
-         * Clears the half of the byte that the piece will be stored on, and shifts the
-         * piece
-         * appropriately
-         */
-        if ((square & 1) == 0) {
-            this.board[col][row] = (byte) ((this.board[col][row] & 0x0f) | piece << 4);
-        } else {
-            this.board[col][row] = (byte) ((this.board[col][row] & 0xF0) | piece & 0x0f);
-        } // if/else
+        /* Remove whatever was on the square from its bitboards */
+        if (oldPiece != PieceTypes.EMPTY) {
+            this.pieceBoards[oldPiece] &= ~mask;
+            this.colorBoards[pieceColor(oldPiece)] &= ~mask;
+            this.occupied &= ~mask;
+        } // if
+
+        /* Add the new piece, keeping track of the kings as they are placed */
+        if (piece != PieceTypes.EMPTY) {
+            this.pieceBoards[piece] |= mask;
+            this.colorBoards[pieceColor(piece)] |= mask;
+            this.occupied |= mask;
+            if (piece == PieceTypes.WHITE_KING) {
+                this.whiteKingSquare = square;
+            } else if (piece == PieceTypes.BLACK_KING) {
+                this.blackKingSquare = square;
+            } // if/else
+        } // if
+        this.squares[square] = piece;
+        this.pieceKey ^= Zobrist.PIECE_KEYS[oldPiece][square] ^ Zobrist.PIECE_KEYS[piece][square];
     } // setSquare
 
     /**
@@ -103,18 +151,38 @@ public class Board {
      * @return The piece located on the square
      */
     public byte getSquare(int square) {
-        /* Interpret the row and column based off of the square */
-        int col = square >> 3;
-        int row = (square & 7) >> 1;
-
-        /* Builds the piece by returning the proper half of the byte */
-        if ((square & 1) == 0) {
-            return (byte) ((this.board[col][row] & 0xF0) >>> 4);
-        } else {
-            return (byte) (this.board[col][row] & 0x0F);
-        }
+        return this.squares[square];
     } // getSquare
 
+    /**
+     * Gets the bitboard of a piece type.
+     *
+     * @param piece The piece type (defined in PieceTypes)
+     * @return A mask of every square the piece is on
+     */
+    public long getPieces(byte piece) {
+        return this.pieceBoards[piece];
+    } // getPieces(byte)
+
+    /**
+     * Gets the bitboard of every piece of a color.
+     *
+     * @param color The color (defined in PieceTypes)
+     * @return A mask of every square holding a piece of that color
+     */
+    public long getColorPieces(byte color) {
+        return this.colorBoards[color];
+    } // getColorPieces(byte)
+
+    /**
+     * Gets the bitboard of every occupied square.
+     *
+     * @return A mask of every occupied square
+     */
+    public long getOccupied() {
+        return this.occupied;
+    } // getOccupied()
+
     /**
      * Sets the board to chess's default starting position.
      */
@@ -206,18 +274,26 @@ public class Board {
      * Resets the board to empty squares.
      */
     public void clearBoard() {
-        for (int i = 0; i < 64; i++) {
-            setSquare(i, PieceTypes.EMPTY);
-        } // for
+        Arrays.fill(this.pieceBoards, 0L);
+        Arrays.fill(this.colorBoards, 0L);
+        Arrays.fill(this.squares, PieceTypes.EMPTY);
+        this.occupied = 0L;
+        this.pieceKey = 0L;
+        this.enPassantSquare = -1;
     } // clearBoard
 
     /**
-     * Gets the board.
+     * Gets the board in the packed form of two squares per byte.
      *
      * @return the array representing just the board
      */
     public byte[][] getBoard() {
-        return this.board;
+        byte[][] packed = new byte[8][4];
+        for (int square = 0; square < 64; square += 2) {
+            packed[square >> 3][(square & 7) >> 1] = (byte) ((this.squares[square] << 4)
+                    | this.squares[square + 1]);
+        } // for
+        return packed;
     } // getBoard();
 
     /**
@@ -280,90 +356,51 @@ public class Board {
         return addTo;
     } // addPieceValue(byte, int)
 
+    /**
+     * Evaluates the material of one color.
+     *
+     * @param color The color to evaluate
+     * @return an integer representing the material of that color.
+     */
+    private int colorMaterial(byte color) {
+        int offset = (color == PieceTypes.WHITE) ? 0 : PieceTypes.BLACK_PAWN - PieceTypes.WHITE_PAWN;
+        return Long.bitCount(this.pieceBoards[PieceTypes.WHITE_PAWN + offset])
+                + 3 * Long.bitCount(this.pieceBoards[PieceTypes.WHITE_KNIGHT + offset])
+                + 3 * Long.bitCount(this.pieceBoards[PieceTypes.WHITE_BISHOP + offset])
+                + 5 * Long.bitCount(this.pieceBoards[PieceTypes.WHITE_ROOK + offset])
+                + 9 * Long.bitCount(this.pieceBoards[PieceTypes.WHITE_QUEEN + offset]);
+    } // colorMaterial(byte)
+
     /**
      * Evaluates the material advantage on the board.
      * 
      * @return an integer representing the material advantage.
      */
     public int material() {
-        int material = 0;
-        for (int i = 0; i < 64; i++) {
-            byte piece = getSquare(i);
-            /* If the square is empty ignore it. */
-            if (piece == PieceTypes.EMPTY) {
-                continue;
-            } // if
-            switch (piece) {
-                case PieceTypes.WHITE_PAWN -> material += 1;
-                case PieceTypes.BLACK_PAWN -> material -= 1;
-                case PieceTypes.WHITE_KNIGHT -> material += 3;
-                case PieceTypes.BLACK_KNIGHT -> material -= 3;
-                case PieceTypes.WHITE_BISHOP -> material += 3;
-                case PieceTypes.BLACK_BISHOP -> material -= 3;
-                case PieceTypes.WHITE_ROOK -> material += 5;
-                case PieceTypes.BLACK_ROOK -> material -= 5;
-                case PieceTypes.WHITE_QUEEN -> material += 9;
-                case PieceTypes.BLACK_QUEEN -> material -= 9;
-                default -> {
-                } // return nothing for default
-            } // switch
-        } // for
+        int material = colorMaterial(PieceTypes.WHITE) - colorMaterial(PieceTypes.BLACK);
         if (this.engineColor == PieceTypes.BLACK) {
             material = 0 - material;
         } // if
         return material;
     } // material()
+
     public int whiteMaterial() {
-        int material = 0;
-        for (int i = 0; i < 64; i++) {
-            byte piece = getSquare(i);
-            /* If the square is empty ignore it. */
-            if (piece == PieceTypes.EMPTY && pieceColor(piece) == PieceTypes.WHITE) {
-                continue;
-            } // if
-            switch (piece) {
-                case PieceTypes.WHITE_PAWN -> material += 1;
-                case PieceTypes.WHITE_KNIGHT -> material += 3;
-                case PieceTypes.WHITE_BISHOP -> material += 3;
-                case PieceTypes.WHITE_ROOK -> material += 5;
-                case PieceTypes.WHITE_QUEEN -> material += 9;
-                default -> {
-                } // return nothing for default
-            } // switch
-            if (engineColor == PieceTypes.WHITE) {
-            this.enginePieceCount++;
-            } else {
-                this.playerPieceCount++;
-            }
-        } // for
-        return material;
-    } // material()
+        if (engineColor == PieceTypes.WHITE) {
+            this.enginePieceCount += Long.bitCount(this.colorBoards[PieceTypes.WHITE]);
+        } else {
+            this.playerPieceCount += Long.bitCount(this.colorBoards[PieceTypes.WHITE]);
+        } // if/else
+        return colorMaterial(PieceTypes.WHITE);
+    } // whiteMaterial()
 
     public int blackMaterial() {
-        int material = 0;
-        for (int i = 0; i < 64; i++) {
-            byte piece = getSquare(i);
-            /* If the square is empty ignore it. */
-            if (piece == PieceTypes.EMPTY && pieceColor(piece) == PieceTypes.BLACK) {
-                continue;
-            } // if
-            switch (piece) {
-                case PieceTypes.BLACK_PAWN -> material += 1;
-                case PieceTypes.BLACK_KNIGHT -> material += 3;
-                case PieceTypes.BLACK_BISHOP -> material += 3;
-                case PieceTypes.BLACK_ROOK -> material += 5;
-                case PieceTypes.BLACK_QUEEN -> material += 9;
-                default -> {
-                } // return nothing for default
-            } // switch
-            if (engineColor == PieceTypes.BLACK) {
-            this.enginePieceCount++;
-            } else {
-                this.playerPieceCount++;
-            }
-        } // for
-        return material;
-    } // material()
+        if (engineColor == PieceTypes.BLACK) {
+            this.enginePieceCount += Long.bitCount(this.colorBoards[PieceTypes.BLACK]);
+        } else {
+            this.playerPieceCount += Long.bitCount(this.colorBoards[PieceTypes.BLACK]);
+        } // if/else
+        return colorMaterial(PieceTypes.BLACK);
+    } // blackMaterial()
 
     /**
      * Calculates the number of points won or lost by the engine at the end of a
@@ -393,12 +430,7 @@ public class Board {
      * @return true if the king is gone, otherwise false.
      */
     public boolean kingCapture(byte king) {
-        for (int i = 0; i < 64; i++) {
-            if (getSquare(i) == king) {
-                return false;
-            } // if
-        } // for
-        return true;
+        return this.pieceBoards[king] == 0;
     }// kingCapture
 
     /**
@@ -414,6 +446,167 @@ public class Board {
         } // if/else
     } // oppColor()
 
+    /**
+     * Packs the state a move overwrites into an int so it can be restored. The
+     * captured piece is kept in the move itself.
+     *
+     * @return The packed state
+     */
+    private int packUndo() {
+        return this.whiteKingSquare
+                | (this.blackKingSquare << 6)
+                | ((this.enPassantSquare + 1) << 12)
+                | ((this.canCastle ? 1 : 0) << 19)
+                | (this.turnColor << 20);
+    } // packUndo()
+
+    /**
+     * Applies a move to this board without changing the turn. PieceMoves.movePiece
+     * applies it to a copy instead.
+     *
+     * @param move The move to apply
+     * @return The packed state needed to undo the move
+     */
+    int applyMove(Move move) {
+        return applyMove(PackedMove.fromMove(move, this));
+    } // applyMove(Move)
+
+    /**
+     * Applies a packed move to this board without changing the turn.
+     *
+     * @param move The packed move to apply
+     * @return The packed state needed to undo the move
+     */
+    int applyMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        byte piece = PackedMove.piece(move);
+        int undo = packUndo();
+        this.enPassantSquare = -1;
+
+        if (PackedMove.isCastle(move)) {
+            /* Castling: the king moves two squares toward the rook, which jumps over it */
+            byte rook = (pieceColor(piece) == PieceTypes.WHITE) ? PieceTypes.WHITE_ROOK : PieceTypes.BLACK_ROOK;
+            setSquare(from, PieceTypes.EMPTY);
+            setSquare(from + 24, PieceTypes.EMPTY);
+            setSquare(to, piece);
+            setSquare(from + 8, rook);
+            this.canCastle = false;
+            return undo;
+        } // if
+
+        /*
+         * Set the ending square to the piece at the starting square. Then clear the
+         * start square.
+         */
+        setSquare(to, PackedMove.isPromotion(move) ? PackedMove.promotion(move) : piece);
+        setSquare(from, PieceTypes.EMPTY);
+
+        if (PackedMove.isEnPassant(move)) {
+            /* The captured pawn is beside the starting square, not on the ending square */
+            setSquare((to & ~7) | (from & 7), PieceTypes.EMPTY);
+        } else if (PackedMove.isDoublePush(move)) {
+            this.enPassantSquare = (from + to) >> 1;
+        } // if/else
+
+        if (piece == PieceTypes.WHITE_KING) {
+            if (this.engineColor == PieceTypes.WHITE) {
+                this.canCastle = false;
+            } // if
+        } else if (piece == PieceTypes.BLACK_KING) {
+            this.canCastle = false;
+        } // if/else
+        return undo;
+    } // applyMove(int)
+
+    /**
+     * Makes a move on this board and passes the turn, remembering what is needed
+     * to take it back with unmakeMove.
+     *
+     * @param move The move to make
+     */
+    public void makeMove(Move move) {
+        makeMove(PackedMove.fromMove(move, this));
+    } // makeMove(Move)
+
+    /**
+     * Makes a packed move on this board and passes the turn, remembering what is
+     * needed to take it back with unmakeMove.
+     *
+     * @param move The packed move to make
+     */
+    public void makeMove(int move) {
+        if (this.undoStack == null) {
+            this.undoStack = new int[64];
+            this.moveStack = new int[64];
+        } else if (this.undoCount == this.undoStack.length) {
+            this.undoStack = Arrays.copyOf(this.undoStack, this.undoCount * 2);
+            this.moveStack = Arrays.copyOf(this.moveStack, this.undoCount * 2);
+        } // if/else
+        this.undoStack[this.undoCount] = applyMove(move);
+        this.moveStack[this.undoCount] = move;
+        this.undoCount++;
+        this.turnColor = oppColor();
+    } // makeMove(int)
+
+    /**
+     * Takes back the last move made with makeMove, restoring the captured piece,
+     * king squares, castling flag, en passant square and turn.
+     */
+    public void unmakeMove() {
+        this.undoCount--;
+        int undo = this.undoStack[this.undoCount];
+        int move = this.moveStack[this.undoCount];
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        byte piece = PackedMove.piece(move);
+
+        if (PackedMove.isCastle(move)) {
+            byte rook = (pieceColor(piece) == PieceTypes.WHITE) ? PieceTypes.WHITE_ROOK : PieceTypes.BLACK_ROOK;
+            setSquare(to, PieceTypes.EMPTY);
+            setSquare(from + 8, PieceTypes.EMPTY);
+            setSquare(from, piece);
+            setSquare(from + 24, rook);
+        } else if (PackedMove.isEnPassant(move)) {
+            setSquare(from, piece);
+            setSquare(to, PieceTypes.EMPTY);
+            setSquare((to & ~7) | (from & 7), PackedMove.captured(move));
+        } else {
+            setSquare(from, piece);
+            setSquare(to, PackedMove.captured(move));
+        } // if/else
+
+        this.whiteKingSquare = undo & 0x3F;
+        this.blackKingSquare = (undo >>> 6) & 0x3F;
+        this.enPassantSquare = ((undo >>> 12) & 0x7F) - 1;
+        this.canCastle = ((undo >>> 19) & 1) == 1;
+        this.turnColor = (byte) ((undo >>> 20) & 1);
+    } // unmakeMove()
+
+    /**
+     * Checks that a move doesn't leave the moving side's king in check.
+     *
+     * @param move A move for the side whose turn it is
+     * @return true if the move is legal, otherwise false
+     */
+    public boolean isLegal(Move move) {
+        return isLegal(PackedMove.fromMove(move, this));
+    } // isLegal(Move)
+
+    /**
+     * Checks that a packed move doesn't leave the moving side's king in check.
+     *
+     * @param move A packed move for the side whose turn it is
+     * @return true if the move is legal, otherwise false
+     */
+    public boolean isLegal(int move) {
+        byte color = this.turnColor;
+        makeMove(move);
+        boolean legal = !inCheck(color);
+        unmakeMove();
+        return legal;
+    } // isLegal(int)
+
     public boolean isCheckmate(byte color) {
         if (!inCheck(color)) return false;
         Move[] legalMoves = nextMoves();
@@ -421,37 +614,64 @@ public class Board {
     }
 
     public Move ranNextMove(Random rand) {
-        Move[] possMoves = nextMoves();
-        if (possMoves.length == 0) {
+        MoveList possMoves = plyMoveList();
+        int pick = sampleLegal(possMoves, rand);
+        if (pick == -1) {
             return null;
-        }
-    
-        int totalWeight = 0;
-        for (Move move : possMoves) {
-            if (move.moveWeight <= 0) {
-                move.moveWeight = 1;
-            }
-            totalWeight += move.moveWeight;
-        }
-    
-        if (totalWeight <= 0) {
-            System.out.println("Invalid total weight: " + totalWeight);
-            return null;
-        }
-    
-        int pick = rand.nextInt(totalWeight);
-        int cumulativeWeight = 0;
-    
-        for (Move move : possMoves) {
-            cumulativeWeight += move.moveWeight;
-            if (pick < cumulativeWeight) {
-                return move;
-            }
-        }
-    
-        return possMoves[possMoves.length - 1];
-    }
-    
+        } // if
+        return PackedMove.toMove(possMoves.moves[pick], possMoves.weights[pick]);
+    } // ranNextMove(Random)
+
+    /**
+     * Picks a legal move at random, weighted by moveWeight, without allocating.
+     *
+     * @param rand A random object.
+     * @return The packed move, or PackedMove.NONE if there are no legal moves
+     */
+    public int ranNextPackedMove(Random rand) {
+        MoveList possMoves = plyMoveList();
+        int pick = sampleLegal(possMoves, rand);
+        return (pick == -1) ? PackedMove.NONE : possMoves.moves[pick];
+    } // ranNextPackedMove(Random)
+
+    /**
+     * Fills a list with the pseudo-legal moves of the side to move, weighted as
+     * legalMoves weights them but without looking for checkmates, and picks one
+     * by weight. Only the picked move is checked for legality; an illegal one is
+     * dropped from the list and another is picked, so each legal move keeps its
+     * share of the weight. Notes whether the side to move has a legal move.
+     *
+     * Finding checkmates would mean making every checking move and generating
+     * its replies on every ply of a simulation, so checks are only weighted from
+     * givesCheck here. Mates in the tree are found by the solver instead.
+     *
+     * @param moves The list to fill
+     * @param rand  A random object.
+     * @return The index of the move picked, or -1 if there are no legal moves
+     */
+    private int sampleLegal(MoveList moves, Random rand) {
+        byte color = this.turnColor;
+        generateMoves(color, moves);
+        weightChecks(moves, false);
+
+        int kingSquare = (color == PieceTypes.WHITE) ? this.whiteKingSquare : this.blackKingSquare;
+        long checkers = PieceMoves.attackersTo(this, kingSquare, (byte) (color ^ 1));
+        long pinned = PieceMoves.pinnedPieces(this, color, kingSquare);
+        long evasions = evasionSquares(kingSquare, checkers);
+
+        while (moves.size > 0) {
+            /* Rejections are rare, so the table is just rebuilt after one */
+            int pick = moves.sample(rand, moves.buildCumulative());
+            if (isLegal(moves.moves[pick], color, kingSquare, pinned, evasions)) {
+                updateLegalMoves(moves.size);
+                return pick;
+            } // if
+            moves.removeAt(pick);
+        } // while
+
+        updateLegalMoves(0);
+        return -1;
+    } // sampleLegal(MoveList, Random)
 
     /**
      * Creates a random weighted move from all possible next moves. More likely to
@@ -463,26 +683,23 @@ public class Board {
     public Move ranWeightedMove(Random rand) {
         int[] moveSquares = new int[128];
         int mvsqr = 0;
+        MoveList options = plyMoveList();
 
         //PrintWriter pen = new PrintWriter(System.out, true);
 
-        for (int square = 0; square < 64; square++) {
-            byte piece = this.getSquare(square);
+        /* Only look at our own pieces */
+        for (long pieces = this.colorBoards[this.turnColor]; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            byte piece = this.squares[square];
 
-            /* Ignore it if its not our piece */
-            if (piece == PieceTypes.EMPTY || !isColor(piece, this.turnColor)) {
-                continue;
-            }
-
-            Move[] pieceMoves = generatePieceMoves(piece, square);
-            if (pieceMoves.length != 0) {
-                for (Move move : pieceMoves) {
-                    for (int i = 0; i < move.moveWeight; i++) {
-                        if (mvsqr > (moveSquares.length / 2)) {
-                            moveSquares = Arrays.copyOf(moveSquares, moveSquares.length * 2);
-                        }
-                        moveSquares[mvsqr++] = square;
+            options.clear();
+            generatePieceMoves(piece, square, options);
+            for (int i = 0; i < options.size; i++) {
+                for (int j = 0; j < options.weights[i]; j++) {
+                    if (mvsqr > (moveSquares.length / 2)) {
+                        moveSquares = Arrays.copyOf(moveSquares, moveSquares.length * 2);
                     }
+                    moveSquares[mvsqr++] = square;
                 }
             }
         }
@@ -491,52 +708,218 @@ public class Board {
             return null;
         }
 
-        int random = rand.nextInt(mvsqr);
-        int square = moveSquares[random];
+        int playMove = PackedMove.NONE;
+        /* Pick a square by weight, and try once more if none of its moves are usable */
+        for (int attempt = 0; attempt < 2 && playMove == PackedMove.NONE; attempt++) {
+            int square = moveSquares[rand.nextInt(mvsqr)];
 
-        byte piecetoMove = getSquare(square);
-        Move[] options = generatePieceMoves(piecetoMove, square);
+            options.clear();
+            generatePieceMoves(getSquare(square), square, options);
 
-        Move playMove = null;
-        Move bestMove = options[0];
-        for (Move move : options) {
-            if (move.moveWeight > bestMove.moveWeight) {
-                Board bestBoard = PieceMoves.movePiece(move, this);
-                if (!bestBoard.inCheck(this.turnColor)) {
-                    playMove = move;
-                    bestMove = move;
+            int bestWeight = options.weights[0];
+            for (int i = 0; i < options.size; i++) {
+                if (options.weights[i] > bestWeight && isLegal(options.moves[i])) {
+                    playMove = options.moves[i];
+                    bestWeight = options.weights[i];
                 } // if
+            } // for
+            if (playMove != PackedMove.NONE) {
+                return PackedMove.toMove(playMove, bestWeight);
             } // if
         } // for
-        if (playMove == null) {
-            random = rand.nextInt(mvsqr);
-            square = moveSquares[random];
-
-            piecetoMove = getSquare(square);
-            options = generatePieceMoves(piecetoMove, square);
-
-            bestMove = options[0];
-            for (Move move : options) {
-                if (move.moveWeight > bestMove.moveWeight) {
-                    Board bestBoard = PieceMoves.movePiece(move, this);
-                    if (!bestBoard.inCheck(this.turnColor)) {
-                        playMove = move;
-                        bestMove = move;
-                    } // if
-                } // if
-            } // for
+
+        return ranNextMove(rand);
+    } // ranWeightedMove(Random)
+
+    /**
+     * Returns this board's move list for the current ply, cleared. Each ply of
+     * makeMove gets its own list, so generating moves after making a move doesn't
+     * overwrite the list being walked.
+     *
+     * @return An empty move list
+     */
+    private MoveList plyMoveList() {
+        if (this.moveLists == null) {
+            this.moveLists = new MoveList[8];
+        } else if (this.undoCount >= this.moveLists.length) {
+            this.moveLists = Arrays.copyOf(this.moveLists, this.undoCount * 2);
+        } // if/else
+        MoveList moves = this.moveLists[this.undoCount];
+        if (moves == null) {
+            moves = new MoveList();
+            this.moveLists[this.undoCount] = moves;
         } // if
+        moves.clear();
+        return moves;
+    } // plyMoveList()
 
-        if (playMove == null) {
-            Move[] nextMoves = this.nextMoves();
-            if (nextMoves.length == 0) {
-                return null;
+    /**
+     * Fills a list with the legal moves of the side to move. Checks are weighted
+     * up, and checkmates far more so.
+     *
+     * @param moves The list to fill. It is cleared first.
+     */
+    public void legalMoves(MoveList moves) {
+        generateLegalMoves(moves);
+        weightChecks(moves, true);
+
+        /* Update if there are legal moves left. */
+        updateLegalMoves(moves.size);
+    } // legalMoves(MoveList)
+
+    /**
+     * Weights up the moves of a list that give check, and checkmates far more.
+     *
+     * @param moves     Moves for the side to move
+     * @param findMates Whether to make each check and look for a reply, to find
+     *                  the checkmates
+     */
+    private void weightChecks(MoveList moves, boolean findMates) {
+        for (int i = 0; i < moves.size; i++) {
+            int move = moves.moves[i];
+            if (PieceMoves.givesCheck(this, move)) {
+                if (findMates) {
+                    makeMove(move);
+                    if (!hasLegalMove()) {
+                        moves.weights[i] *= 10000;
+                    } //if
+                    unmakeMove();
+                } // if
+                moves.weights[i] *= 10;
+            } //if
+        } // for
+    } // weightChecks(MoveList, boolean)
+
+    /**
+     * Fills a list with the legal moves of the side to move, weighted only by
+     * the generators. Perft uses this, since it only needs the moves.
+     *
+     * @param moves The list to fill. It is cleared first.
+     */
+    public void generateLegalMoves(MoveList moves) {
+        moves.clear();
+        generateMoves(this.turnColor, moves);
+        filterLegal(this.turnColor, moves, moves.size);
+    } // generateLegalMoves(MoveList)
+
+    /**
+     * Removes the moves that would leave a color's king in check from a list of
+     * its pseudo-legal moves, keeping the rest in order. The pieces checking the
+     * king and the pieces pinned to it are found once, so most moves are settled
+     * with a mask test instead of being made.
+     *
+     * @param color The color the moves are for
+     * @param moves The list to filter
+     * @param limit The number of legal moves to stop after
+     */
+    private void filterLegal(byte color, MoveList moves, int limit) {
+        byte oppColor = (byte) (color ^ 1);
+        int kingSquare = (color == PieceTypes.WHITE) ? this.whiteKingSquare : this.blackKingSquare;
+        long checkers = PieceMoves.attackersTo(this, kingSquare, oppColor);
+        long pinned = PieceMoves.pinnedPieces(this, color, kingSquare);
+        long evasions = evasionSquares(kingSquare, checkers);
+
+        int numPossibleMoves = 0;
+        for (int i = 0; i < moves.size && numPossibleMoves < limit; i++) {
+            int move = moves.moves[i];
+            if (isLegal(move, color, kingSquare, pinned, evasions)) {
+                moves.moves[numPossibleMoves] = move;
+                moves.weights[numPossibleMoves] = moves.weights[i];
+                numPossibleMoves++;
             } // if
-            random = rand.nextInt(nextMoves.length);
-            return nextMoves[random];
-        }
-        return playMove;
-    } // ranWeightedMove(Random)
+        } // for
+        moves.size = numPossibleMoves;
+    } // filterLegal(byte, MoveList, int)
+
+    /**
+     * The squares a piece other than the king can move to: anywhere, block or
+     * capture, or nowhere.
+     *
+     * @param kingSquare The square of the king
+     * @param checkers   The pieces checking it
+     * @return The squares that answer the check (all squares if none)
+     */
+    private static long evasionSquares(int kingSquare, long checkers) {
+        if (checkers == 0) {
+            return ~0L;
+        } else if ((checkers & (checkers - 1)) == 0) {
+            return checkers | BitBoards.BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)];
+        } // if/else
+        return 0L;
+    } // evasionSquares(int, long)
+
+    /**
+     * Checks a pseudo-legal move against the king's checkers and pins.
+     *
+     * @param move       The packed move
+     * @param color      The color making the move
+     * @param kingSquare The square of that color's king
+     * @param pinned     The pieces pinned to the king
+     * @param evasions   The squares that answer a check (all squares if none)
+     * @return true if the move doesn't leave the king in check
+     */
+    private boolean isLegal(int move, byte color, int kingSquare, long pinned, long evasions) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        /* The generator only castles out of and through unattacked squares */
+        if (PackedMove.isCastle(move)) {
+            return true;
+        } // if
+
+        /* The king can't step onto an attacked square, including one behind it on a slider's line */
+        if (from == kingSquare) {
+            return !PieceMoves.isSquareAttacked(this, to, (byte) (color ^ 1), this.occupied & ~(1L << from));
+        } // if
+
+        /*
+         * En passant removes two pieces from a row, so look at the king's attackers as
+         * they would be after it: sliders through the new occupancy, and pawns and
+         * knights other than the pawn taken
+         */
+        if (PackedMove.isEnPassant(move)) {
+            int taken = (to & ~7) | (from & 7);
+            long after = (this.occupied & ~(1L << from) & ~(1L << taken)) | (1L << to);
+            byte oppColor = (byte) (color ^ 1);
+            int offset = (oppColor == PieceTypes.WHITE) ? 0 : PieceTypes.BLACK_PAWN - PieceTypes.WHITE_PAWN;
+            long queens = this.pieceBoards[PieceTypes.WHITE_QUEEN + offset];
+            long leapers = (this.pieceBoards[PieceTypes.WHITE_PAWN + offset] & ~(1L << taken))
+                    | this.pieceBoards[PieceTypes.WHITE_KNIGHT + offset];
+            return (PieceMoves.attackersTo(this, kingSquare, oppColor) & leapers) == 0
+                    && (BitBoards.bishopAttacks(kingSquare, after)
+                            & (this.pieceBoards[PieceTypes.WHITE_BISHOP + offset] | queens)) == 0
+                    && (BitBoards.rookAttacks(kingSquare, after)
+                            & (this.pieceBoards[PieceTypes.WHITE_ROOK + offset] | queens)) == 0;
+        } // if
+
+        if ((evasions & (1L << to)) == 0) {
+            return false;
+        } // if
+        return (pinned & (1L << from)) == 0 || (BitBoards.LINE[kingSquare][from] & (1L << to)) != 0;
+    } // isLegal(int, byte, int, long, long)
+
+    /**
+     * Checks if the side to move has any legal move, stopping at the first one.
+     *
+     * @return true if there is a legal move, otherwise false
+     */
+    private boolean hasLegalMove() {
+        return hasLegalMove(plyMoveList());
+    } // hasLegalMove()
+
+    /**
+     * Checks if the side to move has any legal move, stopping at the first one.
+     * The board isn't changed, so other threads may read or copy it meanwhile.
+     *
+     * @param moves A list to generate into. It is cleared first.
+     * @return true if there is a legal move, otherwise false
+     */
+    public boolean hasLegalMove(MoveList moves) {
+        moves.clear();
+        generateMoves(this.turnColor, moves);
+        filterLegal(this.turnColor, moves, 1);
+        return moves.size > 0;
+    } // hasLegalMove(MoveList)
 
     /**
      * Creates an array of all possible next moves from this position.
@@ -544,120 +927,57 @@ public class Board {
      * @return All possible next moves.
      */
     public Move[] nextMoves() {
-        /*
-         * Create an array to store all possible next moves, and an integer to store the
-         * current
-         * number of moves in the array.
-         */
-        Move[] nextPositions = new Move[50];
-        int numPossibleMoves = 0;
-        /* Loop through the board to check all the pieces */
-        for (int square = 0; square < 64; square++) {
-            byte piece = getSquare(square);
-            /*
-             * If the square is empty, or its an opponents piece, don't bother looking at
-             * the moves.
-             */
-            if (piece == PieceTypes.EMPTY || !isColor(piece, this.turnColor)) {
-                continue;
-            } // if
-            /* Create a new array for all the possible moves of that piece */
-            Move[] pieceMoves = this.generatePieceMoves(piece, square);
-            /* Skip if no moves are generated */
-            if (pieceMoves == null || pieceMoves.length == 0) {
-                continue;
-            } // if
-            /*
-             * Add legal game states (those where the king is not in check) to the master
-             * list of
-             * nextPositions
-             */
-            for (Move pieceMove : pieceMoves) {
-                Board newBoard = PieceMoves.movePiece(pieceMove, this);
-
-                if (!newBoard.inCheck(this.turnColor)) {
-                    nextPositions[numPossibleMoves] = pieceMove;
-                    if (newBoard.inCheck(this.oppColor())) {
-                        newBoard.turnColor = this.oppColor();
-                        if (newBoard.nextMoves().length == 0) {
-                            pieceMove.moveWeight *= 10000;
-                        } //if
-                        pieceMove.moveWeight *= 10;
-                        newBoard.turnColor = this.turnColor;
-                    } //if
-                
-                    numPossibleMoves++;
-                    if (numPossibleMoves >= nextPositions.length) {
-                        /* Expand the array if it's full. */
-                        nextPositions = Arrays.copyOf(nextPositions, numPossibleMoves * 2);
-                    } // if
-                }
-            } // for
-        } // for
-        /* Update if there are legal moves left. */
-        updateLegalMoves(numPossibleMoves);
-        /* Return only the legal game states in a correctly sized array */
-        return Arrays.copyOf(nextPositions, numPossibleMoves);
+        MoveList moves = plyMoveList();
+        legalMoves(moves);
+        return toMoves(moves);
     } // nextMoves
 
     public Move[] nextMoves(byte pieceColor) {
-        byte oppColor = (pieceColor == PieceTypes.WHITE) ? PieceTypes.BLACK : PieceTypes.WHITE;
-        /*
-         * Create an array to store all possible next moves, and an integer to store the
-         * current
-         * number of moves in the array.
-         */
-        Move[] nextPositions = new Move[50];
-        int numPossibleMoves = 0;
-        /* Loop through the board to check all the pieces */
-        for (int square = 0; square < 64; square++) {
-            byte piece = getSquare(square);
-            /*
-             * If the square is empty, or its an opponents piece, don't bother looking at
-             * the moves.
-             */
-            if (piece == PieceTypes.EMPTY || !isColor(piece, pieceColor)) {
-                continue;
-            } // if
-            /* Create a new array for all the possible moves of that piece */
-            Move[] pieceMoves = this.generatePieceMoves(piece, square);
-            /* Skip if no moves are generated */
-            if (pieceMoves == null || pieceMoves.length == 0) {
-                continue;
-            } // if
-            /*
-             * Add legal game states (those where the king is not in check) to the master
-             * list of
-             * nextPositions
-             */
-            for (Move pieceMove : pieceMoves) {
-                Board newBoard = PieceMoves.movePiece(pieceMove, this);
-
-                if (!newBoard.inCheck(pieceColor)) {
-                    nextPositions[numPossibleMoves] = pieceMove;
-                
-                    numPossibleMoves++;
-                    if (numPossibleMoves >= nextPositions.length) {
-                        /* Expand the array if it's full. */
-                        nextPositions = Arrays.copyOf(nextPositions, numPossibleMoves * 2);
-                    } // if
-                }
-            } // for
-        } // for
-        /* Return only the legal game states in a correctly sized array */
-        return Arrays.copyOf(nextPositions, numPossibleMoves);
+        MoveList moves = plyMoveList();
+        generateMoves(pieceColor, moves);
+
+        /* Keep the moves that don't leave the king in check, which needn't be for the side to move */
+        filterLegal(pieceColor, moves, moves.size);
+        return toMoves(moves);
     } // nextMoves
 
     /**
-     * Generates an array of all possible moves by a particular piece on the board.
+     * Unpacks a move list into Move objects.
+     *
+     * @param moves The list to unpack
+     * @return An array of the moves in the list
+     */
+    private static Move[] toMoves(MoveList moves) {
+        Move[] nextPositions = new Move[moves.size];
+        for (int i = 0; i < moves.size; i++) {
+            nextPositions[i] = PackedMove.toMove(moves.moves[i], moves.weights[i]);
+        } // for
+        return nextPositions;
+    } // toMoves(MoveList)
+
+    /**
+     * Adds every pseudo-legal move of a color to a list, without checking if the
+     * moves leave the king in check.
+     *
+     * @param color The color to generate moves for
+     * @param moves The list to add the moves to
+     */
+    public void generateMoves(byte color, MoveList moves) {
+        /* Loop through our own pieces */
+        for (long pieces = this.colorBoards[color]; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            generatePieceMoves(this.squares[square], square, moves);
+        } // for
+    } // generateMoves(byte, MoveList)
+
+    /**
+     * Adds all possible moves by a particular piece on the board to a list.
      *
      * @param piece  The piece to generate moves for
      * @param square The square the piece is located on
-     * @return An array of all possible moves for the piece.
+     * @param moves  The list to add the moves to
      */
-    public Move[] generatePieceMoves(byte piece, int square) {
-        /* Create a new array that will return the types. */
-        Move[] pieceMoves;
+    public void generatePieceMoves(byte piece, int square, MoveList moves) {
         byte color = pieceColor(piece);
 
         /*
@@ -668,24 +988,23 @@ public class Board {
          */
         switch (piece) {
             case PieceTypes.WHITE_PAWN, PieceTypes.BLACK_PAWN ->
-                pieceMoves = PieceMoves.pawnMoves(square, color, this);
+                PieceMoves.pawnMoves(square, color, this, moves);
             case PieceTypes.WHITE_KNIGHT, PieceTypes.BLACK_KNIGHT ->
-                pieceMoves = PieceMoves.knightMoves(square, color, this);
+                PieceMoves.knightMoves(square, color, this, moves);
             case PieceTypes.WHITE_BISHOP, PieceTypes.BLACK_BISHOP ->
-                pieceMoves = PieceMoves.slideMoves(square, color, PieceTypes.WHITE_BISHOP, this);
+                PieceMoves.slideMoves(square, color, PieceTypes.WHITE_BISHOP, this, moves);
             case PieceTypes.WHITE_ROOK, PieceTypes.BLACK_ROOK ->
-                pieceMoves = PieceMoves.slideMoves(square, color, PieceTypes.WHITE_ROOK, this);
+                PieceMoves.slideMoves(square, color, PieceTypes.WHITE_ROOK, this, moves);
             case PieceTypes.WHITE_QUEEN, PieceTypes.BLACK_QUEEN ->
-                pieceMoves = PieceMoves.slideMoves(square, color, PieceTypes.WHITE_QUEEN, this);
+                PieceMoves.slideMoves(square, color, PieceTypes.WHITE_QUEEN, this, moves);
             case PieceTypes.WHITE_KING, PieceTypes.BLACK_KING ->
-                pieceMoves = PieceMoves.kingMoves(square, color, this);
+                PieceMoves.kingMoves(square, color, this, moves);
             default -> throw new AssertionError();
         } // switch
-        return pieceMoves;
     } // generatePieceMoves
 
     /**
-     * Make a deep copy of the board.
+     * Make a deep copy of the board. The copy starts with no moves to undo.
      * 
      * @return the copied board
      */
@@ -694,10 +1013,54 @@ public class Board {
         returnState.canCastle = this.canCastle;
         returnState.whiteKingSquare = this.whiteKingSquare;
         returnState.blackKingSquare = this.blackKingSquare;
-        for (int i = 0; i < this.board.length; i++) {
-            System.arraycopy(this.board[i], 0, returnState.board[i], 0, this.board[0].length);
-        } // for
+        returnState.enPassantSquare = this.enPassantSquare;
+        System.arraycopy(this.pieceBoards, 0, returnState.pieceBoards, 0, this.pieceBoards.length);
+        System.arraycopy(this.colorBoards, 0, returnState.colorBoards, 0, this.colorBoards.length);
+        System.arraycopy(this.squares, 0, returnState.squares, 0, this.squares.length);
+        returnState.occupied = this.occupied;
+        returnState.pieceKey = this.pieceKey;
         return returnState;
     } // copyBoard()
 
+    /**
+     * Gets the Zobrist key of the position: the piece placement, side to move,
+     * castling flag and en passant square. The piece part is kept up to date
+     * incrementally; the rest is folded in here, since turnColor and canCastle
+     * are set directly by callers.
+     *
+     * @return A 64-bit key that is equal for equal positions
+     */
+    public long zobristKey() {
+        return this.pieceKey ^ Zobrist.stateKey(this.turnColor, this.canCastle, this.enPassantSquare);
+    } // zobristKey()
+
+    /**
+     * Checks if another board holds the same position.
+     *
+     * @param obj The object to compare to
+     * @return true if the pieces, side to move, castling flag and en passant
+     *         square are all the same
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } // if
+        if (!(obj instanceof Board)) {
+            return false;
+        } // if
+        Board other = (Board) obj;
+        return this.pieceKey == other.pieceKey
+                && this.turnColor == other.turnColor
+                && this.canCastle == other.canCastle
+                && this.enPassantSquare == other.enPassantSquare
+                && Arrays.equals(this.squares, other.squares);
+    } // equals(Object)
+
+    @Override
+    public int hashCode() {
+        long key = zobristKey();
+        return (int) (key ^ (key >>> 32));
+    } // hashCode()
+
 } // Board
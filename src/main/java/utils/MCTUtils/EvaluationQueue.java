@@ -0,0 +1,154 @@
+package utils.MCTUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import utils.ANNUtils.SimpleANN;
+
+/**
+ * Evaluates positions with the network in batches gathered from all of a
+ * search's workers. A worker submits its leaf's input vector and waits, while
+ * the virtual loss on its path steers the other workers elsewhere. A batcher
+ * thread collects submissions until it has a full batch or the first of them
+ * has waited long enough, runs them through the network together (see
+ * SimpleANN.predict(double[][])), and completes each worker's future.
+ *
+ * A batch can't be larger than the number of workers, since each worker waits
+ * for its own evaluation before submitting another.
+ *
+ * @author Sebastian Manza
+ */
+public class EvaluationQueue implements AutoCloseable {
+
+    /** A submitted input and the future its outputs complete */
+    private static final class Request {
+        final double[] input;
+        final CompletableFuture<double[]> output = new CompletableFuture<>();
+
+        Request(double[] input) {
+            this.input = input;
+        } // Request(double[])
+    } // class Request
+
+    private final SimpleANN ann;
+
+    private final int batchSize;
+
+    private final long maxWaitNanos;
+
+    private final LinkedBlockingQueue<Request> pending = new LinkedBlockingQueue<>();
+
+    private final Thread batcher;
+
+    /** The number of batches run and of positions in them */
+    private long batches;
+    private long evaluated;
+
+    /**
+     * Starts a queue and its batcher thread.
+     *
+     * @param ann          The network to evaluate with
+     * @param batchSize    The most positions run through the network at once
+     * @param maxWaitNanos The longest a submission waits for its batch to fill
+     */
+    public EvaluationQueue(SimpleANN ann, int batchSize, long maxWaitNanos) {
+        this.ann = ann;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxWaitNanos = maxWaitNanos;
+        this.batcher = new Thread(this::batch, "mct-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    } // EvaluationQueue(SimpleANN, int, long)
+
+    /**
+     * Evaluates a position, waiting for the batch it goes into to be run.
+     *
+     * @param input The position's input vector (see ANNVector)
+     * @return The network's value for the position
+     */
+    public double evaluate(double[] input) {
+        return evaluateOutputs(input)[0];
+    } // evaluate(double[])
+
+    /**
+     * Runs a position through the network, waiting for the batch it goes into
+     * to be run.
+     *
+     * @param input The position's input vector (see ANNVector)
+     * @return All of the network's outputs for the position
+     */
+    public double[] evaluateOutputs(double[] input) {
+        Request request = new Request(input);
+        this.pending.add(request);
+        return request.output.join();
+    } // evaluateOutputs(double[])
+
+    /**
+     * The batcher's loop: gather a batch, run it, hand out the values.
+     */
+    private void batch() {
+        List<Request> batch = new ArrayList<>(this.batchSize);
+        try {
+            while (true) {
+                batch.add(this.pending.take());
+                long deadline = System.nanoTime() + this.maxWaitNanos;
+                while (batch.size() < this.batchSize) {
+                    Request next = this.pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    } // if
+                    batch.add(next);
+                } // while
+
+                double[][] inputs = new double[batch.size()][];
+                for (int i = 0; i < inputs.length; i++) {
+                    inputs[i] = batch.get(i).input;
+                } // for
+                try {
+                    double[][] outputs = this.ann.predict(inputs);
+                    for (int i = 0; i < outputs.length; i++) {
+                        batch.get(i).output.complete(outputs[i]);
+                    } // for
+                } catch (RuntimeException e) {
+                    for (Request request : batch) {
+                        request.output.completeExceptionally(e);
+                    } // for
+                } // try/catch
+                this.batches++;
+                this.evaluated += batch.size();
+                batch.clear();
+            } // while
+        } catch (InterruptedException e) {
+            /* Closed. Nothing should be waiting, but don't leave anyone hanging if it is */
+            for (Request request : batch) {
+                request.output.completeExceptionally(e);
+            } // for
+            for (Request request; (request = this.pending.poll()) != null;) {
+                request.output.completeExceptionally(e);
+            } // for
+        } // try/catch
+    } // batch()
+
+    /** @return The average number of positions in a batch so far */
+    public double averageBatch() {
+        return (this.batches == 0) ? 0.0 : (double) this.evaluated / this.batches;
+    } // averageBatch()
+
+    /**
+     * Stops the batcher thread once it is done with its current batch. If the
+     * caller is interrupted while waiting, it stops waiting and keeps its
+     * interrupt.
+     */
+    @Override
+    public void close() {
+        this.batcher.interrupt();
+        try {
+            this.batcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } // try/catch
+    } // close()
+} // class EvaluationQueue
@@ -2,19 +2,15 @@ package utils.MCTUtils;
 
 import java.io.PrintWriter;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
 
 import utils.ANNUtils.ANNVector;
 import utils.ANNUtils.SimpleANN;
 import utils.Board;
-import utils.Move;
-import utils.PieceMoves;
+import utils.MoveList;
+import utils.PackedMove;
 import utils.UIutils;
 
 /**
@@ -24,9 +20,9 @@ import utils.UIutils;
  */
 public class MCT {
     /** The exploration parameter, used to balance exploration vs exploitation */
-    private static final double EXPLORATION_PARAM = 0.8;
+    static final double EXPLORATION_PARAM = 0.8;
 
-    private static SimpleANN ann;
+    static SimpleANN ann;
 
     static {
         int inputSize = 834;
@@ -41,8 +37,23 @@ public class MCT {
     }
 
 
+    /** The nodes of the tree */
+    NodePool pool;
+
+    /** The node of each position in the tree, so transpositions share one */
+    TranspositionTable table;
+
+    /** The settings of the current search */
+    SearchConfig config = new SearchConfig();
+
+    /** The worker threads searches run on */
+    private final SearchEngine engine;
+
+    /** Batches the network evaluations of the running search, or null to evaluate on each worker */
+    EvaluationQueue evaluations;
+
     /** The root node of the move. (i.e. the move we are exploring from) */
-    MCTNode root;
+    int root;
 
     /**
      * Creates a new Monte Carlo Tree
@@ -50,264 +61,704 @@ public class MCT {
      * @param currentMove The most recent move made.
      */
     public MCT(Board currentMove) {
-        this.root = new MCTNode(currentMove, null);
+        this(currentMove, SearchEngine.shared());
     } // MCT(Board)
 
+    /**
+     * Creates a new Monte Carlo Tree that searches on the given engine's threads
+     * 
+     * @param currentMove The most recent move made.
+     * @param engine      The engine to search with
+     */
+    public MCT(Board currentMove, SearchEngine engine) {
+        this.engine = engine;
+        this.pool = new NodePool();
+        this.table = new TranspositionTable();
+        this.root = this.pool.newRoot(currentMove);
+        this.table.putIfAbsent(currentMove.zobristKey(), this.root);
+    } // MCT(Board, SearchEngine)
+
+    /**
+     * Moves the root down to a position reached from it, keeping the statistics
+     * of the subtree below it. The position is looked for among the root's
+     * children and grandchildren, so it can be the engine's move followed by the
+     * opponent's reply. If it isn't in the tree the search starts over from it.
+     * 
+     * @param position The position now being played from
+     * @return Whether part of the tree was kept
+     */
+    public boolean advance(Board position) {
+        int match = findPosition(this.root, position, 2);
+        NodePool kept = new NodePool();
+        TranspositionTable table = new TranspositionTable();
+        if (match == NodePool.NONE) {
+            this.root = kept.newRoot(position);
+            table.putIfAbsent(position.zobristKey(), this.root);
+        } else {
+            this.root = kept.copySubtree(this.pool, match, table);
+        } // if/else
+
+        /* The old pool, and with it the rest of the tree, is let go */
+        this.pool = kept;
+        this.table = table;
+        return match != NodePool.NONE;
+    } // advance(Board)
+
+    /**
+     * Looks for a position in the tree below a node.
+     * 
+     * @param node     The node to search from
+     * @param position The position to find
+     * @param depth    How many moves below the node to look
+     * @return The node holding the position, or NONE
+     */
+    private int findPosition(int node, Board position, int depth) {
+        if (this.pool.key(node) == position.zobristKey() && this.pool.materialize(node).equals(position)) {
+            return node;
+        } // if
+        if (depth == 0) {
+            return NodePool.NONE;
+        } // if
+
+        int first = this.pool.firstChild(node);
+        for (int child = first; child < first + this.pool.childCount(node); child++) {
+            int match = findPosition(child, position, depth - 1);
+            if (match != NodePool.NONE) {
+                return match;
+            } // if
+        } // for
+        return NodePool.NONE;
+    } // findPosition(int, Board, int)
+
+    /** @return The number of playouts already behind the root */
+    public int rootPlayOuts() {
+        return this.pool.playOuts(this.root);
+    } // rootPlayOuts()
+
     /**
      * Prints the computers most likely scenario.
      * 
      * @param pen  The printwriter object to print with
-     * @param root The root of the tree
+     * @param node The node to start from
      * @throws Exception if the printWriter object fails
      */
-    private static void printLikelyScenario(PrintWriter pen, MCTNode root) throws Exception {
-        MCTNode node = root;
-        while (!node.nextMoves.isEmpty()) {
-            node.currentState.printBoard(pen);
+    private void printLikelyScenario(PrintWriter pen, int node) throws Exception {
+        while (this.pool.childCount(node) > 0) {
+            this.pool.materialize(node).printBoard(pen);
             pen.printf(
                     "Board was played %d times with a winrate of %.2f%% \n",
-                    node.playOuts.get(), node.winRate.get() * 100);
-            node = Collections.max(node.nextMoves, Comparator.comparingInt(n -> n.playOuts.get()));
+                    this.pool.playOuts(node), this.pool.winRate(node) * 100);
+            node = mostPlayedChild(node);
         } // while
-    } // printLikelyScenario(PrintWriter, MCTNode)
+    } // printLikelyScenario(PrintWriter, int)
+
+    /**
+     * Finds the child that was played the most.
+     * 
+     * @param node An expanded node with children
+     * @return The child with the most playouts
+     */
+    private int mostPlayedChild(int node) {
+        int first = this.pool.firstChild(node);
+        int end = first + this.pool.childCount(node);
+        int best = first;
+        for (int child = first + 1; child < end; child++) {
+            if (this.pool.playOuts(child) > this.pool.playOuts(best)) {
+                best = child;
+            } // if
+        } // for
+        return best;
+    } // mostPlayedChild(int)
+
+    /**
+     * Picks the move to play: a proven win if there is one, otherwise the most
+     * played move that isn't a proven loss or pruned (see MCTPPR).
+     * 
+     * @return The chosen child of the root
+     */
+    private int chooseMove() {
+        int first = this.pool.firstChild(root);
+        int end = first + this.pool.childCount(root);
+        int best = NodePool.NONE;
+        for (int child = first; child < end; child++) {
+            int result = this.pool.proven(child);
+            if (result == NodePool.PROVEN_WIN) {
+                return child;
+            } // if
+            if (result != NodePool.PROVEN_LOSS && !this.pool.isPruned(child)
+                    && (best == NodePool.NONE || this.pool.playOuts(child) > this.pool.playOuts(best))) {
+                best = child;
+            } // if
+        } // for
+        return (best == NodePool.NONE) ? mostPlayedChild(root) : best;
+    } // chooseMove()
 
     /**
      * Searches for the best possible move in the tree.
      * 
      * @param duration The amount of time to search for
      * @return A board representing the best possible move
-     * @throws Exception if something goes wrong with the PrintWriter or
-     *                   ExecutorService.
+     * @throws Exception if something goes wrong with the PrintWriter or the
+     *                   search is interrupted.
      */
     public Board search(Duration duration) throws Exception {
-        Instant start = Instant.now();
-        Instant deadline = start.plus(duration);
-        PrintWriter pen = new PrintWriter(System.out, true);
-
-        int processors = Runtime.getRuntime().availableProcessors();
+        return search(duration, this.config);
+    } // search(Duration)
 
-        ExecutorService executor = Executors.newFixedThreadPool(processors);
+    /**
+     * Searches for the best possible move in the tree.
+     * 
+     * @param duration The amount of time to search for
+     * @param config   The settings to search with, kept for later searches
+     * @return A board representing the best possible move
+     * @throws Exception if something goes wrong with the PrintWriter or the
+     *                   search is interrupted.
+     */
+    public Board search(Duration duration, SearchConfig config) throws Exception {
+        this.config = config;
+        PrintWriter pen = new PrintWriter(System.out, true);
 
-        Runnable MCTSworker = () -> {
-            while (Instant.now().isBefore(deadline)) {
-                try {
-                    MCTNode selectedNode = select(root);
-                    MCTNode expandedNode = expand(selectedNode);
-                    simResultMCT winPoints = simulate(expandedNode, root);
-                    backPropagate(expandedNode, winPoints.winPoints, winPoints.length);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } // try/catch
-            } // while
-        };
-        for (int i = 0; i < processors; i++) {
-            executor.submit(MCTSworker);
-        } // for
-        executor.shutdown();
-        executor.awaitTermination(duration.toMillis(), TimeUnit.MILLISECONDS);
+        TimeManager time = new TimeManager(duration, config, this.pool.playOuts(this.root));
+        int batchSize = Math.min(config.evalBatchSize, this.engine.threads());
+        EvaluationQueue evaluations = (batchSize > 1)
+                ? new EvaluationQueue(ann, batchSize, config.evalMaxWaitMicros * 1000)
+                : null;
+        this.evaluations = evaluations;
+        try {
+            this.engine.run(this, time);
+        } finally {
+            this.evaluations = null;
+            if (evaluations != null) {
+                evaluations.close();
+            } // if
+        } // try/finally
 
-        /* Find the best move based on the node that was played the most */
-        if (root.nextMoves.isEmpty()) {
+        /* Find the best move: a proven win, or else the node that was played the most */
+        if (this.pool.childCount(root) == 0) {
             return null;
         } // if
-        MCTNode bestNode = Collections.max(root.nextMoves, Comparator.comparingInt(n -> n.playOuts.get()));
+        int bestNode = chooseMove();
 
         /* Print information and return the move. */
         printLikelyScenario(pen, bestNode);
-        pen.println("Simulated " + root.playOuts.get() + " games.");
+        pen.printf("Simulated %d games in %.2f s (%s).\n", this.pool.playOuts(root),
+                time.elapsedNanos() / 1e9, (time.reason() != null) ? time.reason() : "stopped");
+        pen.printf("Tree holds %d nodes and %d boards in about %.1f MB%s.\n", nodeCount(), this.pool.boardCount(),
+                footprintBytes() / 1e6, overBudget() ? " (budget reached)" : "");
+        if (evaluations != null) {
+            pen.printf("Network evaluations ran in batches of %.1f on average.\n", evaluations.averageBatch());
+        } // if
         pen.printf("Chosen move was played %d times with a simulated win rate of %.2f%%\n",
-                bestNode.playOuts.get(), bestNode.winRate.get() * 100);
+                this.pool.playOuts(bestNode), this.pool.winRate(bestNode) * 100);
+        if (this.pool.proven(bestNode) != NodePool.UNPROVEN) {
+            pen.println("Chosen move is proven to " + switch (this.pool.proven(bestNode)) {
+                case NodePool.PROVEN_WIN -> "win.";
+                case NodePool.PROVEN_LOSS -> "lose.";
+                default -> "draw.";
+            });
+        } // if
 
-        int size = root.nextMoves.size();
-        for (int i = 0; i < size; i++) {
-            MCTNode worst = Collections.min(root.nextMoves, Comparator.comparingInt(n -> n.playOuts.get()));
+        /* List the root's children from the least played up */
+        int first = this.pool.firstChild(root);
+        Integer[] children = new Integer[this.pool.childCount(root)];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = first + i;
+        } // for
+        Arrays.sort(children, Comparator.comparingInt(this.pool::playOuts));
+        for (int worst : children) {
             System.out.printf(
                     "Move: %s Win CI [%.2f, %.2f] Playouts: %d, Length CI [%.2f, %.2f]\n",
-                    UIutils.toNotation(worst.move), ((worst.winRate.get() * 100) - (worst.standardErr.get() * 1.96 * 100)),
-                    ((worst.winRate.get() * 100) + (worst.standardErr.get() * 100)), worst.playOuts.get(),
-                    (worst.avgLength.get() - Math.sqrt(worst.lengthstdDev.get())),
-                    (worst.avgLength.get() + Math.sqrt(worst.lengthstdDev.get())));
-            root.nextMoves.remove(worst);
+                    UIutils.toNotation(this.pool.move(worst)),
+                    ((this.pool.winRate(worst) * 100) - (this.pool.standardErr(worst) * 1.96 * 100)),
+                    ((this.pool.winRate(worst) * 100) + (this.pool.standardErr(worst) * 100)),
+                    this.pool.playOuts(worst),
+                    (this.pool.avgLength(worst) - Math.sqrt(this.pool.lengthVariance(worst))),
+                    (this.pool.avgLength(worst) + Math.sqrt(this.pool.lengthVariance(worst))));
         } // for
 
-        return bestNode.currentState;
-    } // search(Duration)
+        return this.pool.materialize(bestNode);
+    } // search(Duration, SearchConfig)
 
     /**
-     * Calculates a value for a node to select using UCB1
+     * Ends the running search early. The search still returns its best move.
+     */
+    public void stop() {
+        this.engine.stop();
+    } // stop()
+
+    /**
+     * Runs one select, expand, simulate and backpropagate pass.
      * 
-     * @param node The node to calculate
-     * @return The value of the node
+     * @param path The worker's path, reused from pass to pass
      */
-    private static double UCT(MCTNode node) {
+    void iterate(SearchPath path) {
+        select(this.root, path);
+        expand(path);
+
+        /* A proven position's result is known, so it isn't simulated */
+        Board leaf = this.pool.materialize(path.leaf());
+        if (this.pool.proven(path.leaf()) != NodePool.UNPROVEN) {
+            solve(path);
+            backPropagate(path, provenPoints(path.leaf()), 1);
+            return;
+        } // if
 
-        /* Make sure the last moves playouts isn't null */
-        double lastMovePlayouts = node.lastMove != null ? node.lastMove.playOuts.get() : 1;
+        simResultMCT winPoints = evaluate(leaf, path);
+        solve(path);
+        backPropagate(path, winPoints.winPoints, winPoints.length);
+    } // iterate(SearchPath)
 
-        /* Return a high value if the node has never been played */
-        if (node.playOuts.get() == 0) {
+    /**
+     * Removes the virtual loss still held by a path whose pass failed, so the
+     * nodes on it aren't avoided for the rest of the tree's life.
+     *
+     * @param path The path of the failed pass
+     */
+    void abandon(SearchPath path) {
+        for (int i = 0; i < path.virtualLosses; i++) {
+            this.pool.removeVirtualLoss(path.nodes[i]);
+        } // for
+        path.virtualLosses = 0;
+    } // abandon(SearchPath)
+
+    /**
+     * Proves what can be proven along a path after a simulation, from the leaf
+     * up. A finished game is proven from its board. Above that, a position is
+     * lost for the side that moved into it if the side to move has a proven win,
+     * and won if every reply is a proven loss. It stops at the first position
+     * that can't be proven, since nothing above it has changed.
+     *
+     * @param path The path simulated
+     */
+    private void solve(SearchPath path) {
+        for (int i = path.length - 1; i >= 0; i--) {
+            int node = path.nodes[i];
+            if (this.pool.proven(node) == NodePool.UNPROVEN && !prove(node)) {
+                return;
+            } // if
+        } // for
+    } // solve(SearchPath)
+
+    /**
+     * Tries to prove a node's position from its board or its children.
+     *
+     * @param node A node whose board is built
+     * @return Whether the position is proven
+     */
+    private boolean prove(int node) {
+        Board state = this.pool.board(node);
+        if (state.isGameOver()) {
+            /* Checkmate is won by the side that moved in, stalemate is drawn */
+            this.pool.setProven(node, state.inCheck(state.turnColor) ? NodePool.PROVEN_WIN : NodePool.PROVEN_DRAW);
+            return true;
+        } // if
+
+        int first = this.pool.firstChild(node);
+        int count = this.pool.childCount(node);
+        if (count == 0) {
+            return false;
+        } // if
+        boolean unproven = false;
+        boolean drawn = false;
+        for (int child = first; child < first + count; child++) {
+            int result = this.pool.proven(child);
+            if (result == NodePool.PROVEN_WIN) {
+                this.pool.setProven(node, NodePool.PROVEN_LOSS);
+                return true;
+            } // if
+            unproven |= result == NodePool.UNPROVEN;
+            drawn |= result == NodePool.PROVEN_DRAW;
+        } // for
+        if (unproven) {
+            return false;
+        } // if
+        this.pool.setProven(node, drawn ? NodePool.PROVEN_DRAW : NodePool.PROVEN_WIN);
+        return true;
+    } // prove(int)
+
+    /**
+     * @param node A proven node whose board is built
+     * @return The proven result as win points for the engine, as simulate gives
+     */
+    private double provenPoints(int node) {
+        double points = switch (this.pool.proven(node)) {
+            case NodePool.PROVEN_WIN -> 1.0;
+            case NodePool.PROVEN_LOSS -> 0.0;
+            default -> 0.5;
+        };
+        Board state = this.pool.board(node);
+        return (state.turnColor != state.engineColor) ? points : 1 - points;
+    } // provenPoints(int)
+
+    /**
+     * Calculates a value for a node to select using UCB1. The win rate is the
+     * position's, shared by every move order that reaches it, while the
+     * exploration term counts the visits through this move. Simulations still in
+     * flight through a node count as losses, so other workers spread to other
+     * branches until they are backpropagated.
+     * 
+     * @param node             The node to calculate
+     * @param lastMovePlayouts The visits of the node's parent
+     * @return The value of the node
+     */
+    double UCT(int node, double lastMovePlayouts) {
+
+        /*
+         * Return a high value if the move has never been played or visited, or if its
+         * position has no results of its own yet (every visit came through a repeat)
+         */
+        int virtualLoss = this.pool.virtualLoss(node);
+        int visits = this.pool.playOuts(node) + virtualLoss;
+        int positionVisits = this.pool.positionPlayOuts(node) + virtualLoss;
+        if (visits == 0 || positionVisits == 0) {
             return 1000.0;
         } // if
 
         /* Calculate the Upper Confidence Bound */
-        double UCB1 = (node.winRate.get()
-                + (EXPLORATION_PARAM * Math.sqrt((Math.log(lastMovePlayouts)) / node.playOuts.get())));
+        double winRate = this.pool.positionWins(node) / positionVisits;
+        double UCB1 = (winRate
+                + (EXPLORATION_PARAM * Math.sqrt((Math.log(lastMovePlayouts)) / visits)));
         return UCB1;
-    } // UCT(node)
+    } // UCT(int, double)
 
     /**
      * Selects the best possible node from the current root with current knowledge.
+     * Adds a virtual loss to every node on the way, which backPropagate removes.
+     * Selection stops at a position already on the path, since shared positions
+     * can lead back to themselves, and at a proven position.
      * 
      * @param node The beginning node.
-     * @return The best possible node from the beginning node.
+     * @param path Filled with the nodes passed through, ending with the selected
+     *             node
      */
-    private static MCTNode select(MCTNode node) {
-        while (!node.currentState.isGameOver()) {
-            if (node.nextMoves.isEmpty() || node.playOuts.get() == 0) {
-                return node;
+    private void select(int node, SearchPath path) {
+        path.clear();
+        path.add(node);
+        this.pool.addVirtualLoss(node);
+        while (!this.pool.materialize(node).isGameOver() && this.pool.proven(node) == NodePool.UNPROVEN) {
+            int visits = this.pool.positionPlayOuts(node);
+            int count = this.pool.childCount(node);
+            if (count == 0 || visits == 0) {
+                return;
             } // if
 
-            /* Return the node with the highest UCB */
-            node = Collections.max(node.nextMoves, Comparator.comparingDouble(MCT::UCT));
+            /* Move to the child with the highest UCB */
+            int best = bestChild(node, visits, count);
+            boolean repeated = path.containsPosition(this.pool, best);
+            node = best;
+            path.add(node);
+            this.pool.addVirtualLoss(node);
+            if (repeated) {
+                /* Every node on the path needs its board to be backpropagated */
+                this.pool.materialize(node);
+                return;
+            } // if
         } // while
-        return node;
-    } // select(MCTNode)
+    } // select(int, SearchPath)
+
+    /**
+     * @return Whether the tree has reached the node or byte budget of the search
+     */
+    private boolean overBudget() {
+        return (this.config.maxNodes > 0 && this.pool.size() >= this.config.maxNodes)
+                || (this.config.maxBytes > 0 && footprintBytes() >= this.config.maxBytes);
+    } // overBudget()
+
+    /** @return The number of nodes in the tree */
+    public int nodeCount() {
+        return this.pool.size();
+    } // nodeCount()
+
+    /** @return Roughly the bytes the tree takes: its nodes, boards and table */
+    public long footprintBytes() {
+        return this.pool.footprintBytes() + this.table.footprintBytes();
+    } // footprintBytes()
 
     /**
-     * Expands the tree one level deeper to continue searching
+     * Finds the child with the highest UCB, scanning the block of children. With
+     * progressive widening only the first (heaviest) few are considered. Moves
+     * proven to lose are passed over.
      * 
-     * @param node The first node reached with no children.
-     * @return The expanded node.
+     * @param node   An expanded node
+     * @param visits The simulations through the node's position
+     * @param count  The number of children the node has
+     * @return The best child
      */
-    private static MCTNode expand(MCTNode node) {
+    int bestChild(int node, int visits, int count) {
+        count = this.config.width(visits, count);
+        double lastMovePlayouts = visits + this.pool.virtualLoss(node);
+        int first = this.pool.firstChild(node);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + count; child++) {
+            if (this.pool.proven(child) == NodePool.PROVEN_LOSS) {
+                continue;
+            } // if
+            double value = UCT(child, lastMovePlayouts);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            } // if
+        } // for
+        return best;
+    } // bestChild(int, int, int)
+
+    /**
+     * Expands the tree one level deeper to continue searching. A child whose
+     * position is already in the tree is linked to the existing node.
+     * 
+     * @param path The selected path. The node simulated from is added to it.
+     */
+    private void expand(SearchPath path) {
+        int node = path.leaf();
+
         /*
-         * Synchronize the expansion process so multiple threads don't attempt to expand
-         * the same node
+         * Simulate from a repeated position itself, since its children may already be
+         * on the path. A proven position isn't searched any further.
          */
-        if (!node.isExpanded) {
-            synchronized (node) {
-                if (!node.isExpanded) {
-                    node.isExpanded = true;
-
-                    /* Add all possible children to the node */
-                    Move[] nextMoves = node.currentState.nextMoves();
-                    for (Move move : nextMoves) {
-                        Board gameState = PieceMoves.movePiece(move, node.currentState);
-                        gameState.moveWeight = move.moveWeight;
-                        gameState.turnColor = gameState.oppColor();
-                        MCTNode newNode = new MCTNode(gameState, node);
-                        newNode.move = move;
-                        node.newChild(newNode);
-                    } // for
-                }
-            }
-        }
-        /* Return the node if theres no possible next move */
-        if (node.nextMoves.isEmpty()) {
-            return node;
+        if (path.repeatsPosition(this.pool, path.length - 1) || this.pool.proven(node) != NodePool.UNPROVEN) {
+            return;
         } // if
 
-        return node.nextMoves.peek();
-    } // expand(node)
+        /*
+         * Simulate from the node itself until it has been visited enough, or if the
+         * tree has grown as large as it may. The root is always expanded, so there is
+         * a move to choose.
+         */
+        if (!this.pool.isExpanded(node) && node != this.root
+                && (this.pool.positionPlayOuts(node) < this.config.expandThreshold || overBudget())) {
+            return;
+        } // if
+
+        /*
+         * Only one thread expands a node. The others wait for its children, which is
+         * quick next to a simulation.
+         */
+        if (this.pool.claimExpansion(node)) {
+            /*
+             * Generate on a copy, since move generation makes and unmakes moves on the
+             * board and other threads may be copying the node's board meanwhile
+             */
+            Board state = this.pool.materialize(node);
+            Board scratch = state.copyBoard();
+            MoveList nextMoves = new MoveList();
+            scratch.legalMoves(nextMoves);
+            state.hasLegalMoves = scratch.hasLegalMoves;
+            nextMoves.sortByWeight();
+
+            /*
+             * Add all possible children to the node as one block, heaviest first. Only
+             * their moves and keys are stored; a child's board is built when a search
+             * first reaches it.
+             */
+            int first = NodePool.NONE;
+            if (nextMoves.size > 0) {
+                try {
+                    first = this.pool.allocate(nextMoves.size);
+                } catch (IllegalStateException e) {
+                    /* The pool is full, so leave the node as a leaf */
+                    this.pool.releaseExpansion(node);
+                    return;
+                } // try/catch
+            } // if
+            for (int i = 0; i < nextMoves.size; i++) {
+                int move = nextMoves.moves[i];
+                scratch.makeMove(move);
+                long key = scratch.zobristKey();
+                scratch.unmakeMove();
+                this.pool.init(first + i, node, move, nextMoves.weights[i], key);
+                int shared = this.table.putIfAbsent(key, first + i);
+                if (shared != NodePool.NONE && shared != first + i) {
+                    this.pool.linkTransposition(first + i, shared);
+                } // if
+            } // for
+            assignPriors(scratch, first, nextMoves.size);
+            this.pool.setChildren(node, first, nextMoves.size);
+
+            /* Other workers can use the children now, while their priors are improved */
+            refinePriors(scratch, first, nextMoves.size);
+        } else {
+            while (this.pool.isExpanding(node)) {
+                Thread.onSpinWait();
+            } // while
+        } // if/else
+
+        /* Simulate from the node if theres no possible next move (or it wasn't expanded) */
+        int count = this.pool.childCount(node);
+        if (count == 0) {
+            return;
+        } // if
+
+        /*
+         * Hand each worker reaching the node its own unvisited child, in weight order,
+         * so workers arriving together don't all simulate the same one. Once they have
+         * all been handed out, pick by UCB like select.
+         */
+        int visits = this.pool.positionPlayOuts(node);
+        int width = this.config.width(visits, count);
+        int claimed = this.pool.claimChild(node, width);
+        int child = (claimed < width) ? this.pool.firstChild(node) + claimed : bestChild(node, visits, count);
+        this.pool.materialize(child);
+        this.pool.addVirtualLoss(child);
+        path.add(child);
+    } // expand(SearchPath)
+
+    /**
+     * Gives a freshly initialized block of children their prior probabilities,
+     * in proportion to their move weights.
+     * 
+     * @param state The position the children are moves from
+     * @param first The first child
+     * @param count The number of children
+     */
+    void assignPriors(Board state, int first, int count) {
+        double totalWeight = 0;
+        for (int child = first; child < first + count; child++) {
+            totalWeight += Math.max(this.pool.weight(child), 1);
+        } // for
+        for (int child = first; child < first + count; child++) {
+            this.pool.setPrior(child, Math.max(this.pool.weight(child), 1) / totalWeight);
+        } // for
+    } // assignPriors(Board, int, int)
+
+    /**
+     * Improves the priors of a block of children once they are published, for
+     * searches whose priors are too slow to compute while other workers wait on
+     * the expansion. MCT keeps the ones assignPriors gave.
+     * 
+     * @param state The position the children are moves from, owned by the caller
+     * @param first The first child
+     * @param count The number of children
+     */
+    void refinePriors(Board state, int first, int count) {
+    } // refinePriors(Board, int, int)
+
+    /**
+     * Finds the result of a pass from its leaf, which MCT does with a random
+     * simulation.
+     * 
+     * @param leaf The position at the terminating node. It isn't changed, other
+     *             than to note whether it has legal moves.
+     * @param path The path to the leaf, which the simulation's moves are added to
+     * @return the number of win-points
+     */
+    simResultMCT evaluate(Board leaf, SearchPath path) {
+        return simulate(leaf, path, this.evaluations);
+    } // evaluate(Board, SearchPath)
+
+    /**
+     * Evaluates a position with the network.
+     * 
+     * @param state       The position
+     * @param evaluations The queue to batch the evaluation on, or null to
+     *                    evaluate it on this thread
+     * @return The network's win points for the engine
+     */
+    static double predict(Board state, EvaluationQueue evaluations) {
+        return predictOutputs(state, evaluations)[0];
+    } // predict(Board, EvaluationQueue)
+
+    /**
+     * Runs a position through the network.
+     * 
+     * @param state       The position
+     * @param evaluations The queue to batch the evaluation on, or null to
+     *                    evaluate it on this thread
+     * @return All of the network's outputs: the win points for the engine, then
+     *         any others it has
+     */
+    static double[] predictOutputs(Board state, EvaluationQueue evaluations) {
+        double[] vector = ANNVector.createVector(state);
+        return (evaluations != null) ? evaluations.evaluateOutputs(vector) : ann.predict(vector);
+    } // predictOutputs(Board, EvaluationQueue)
 
     /**
      * Randomly simulates the finish of the game from the current game state.
      * 
-     * @param node The terminating node
-     * @param root The original root of the tree
+     * @param state The position at the terminating node. It isn't changed, other
+     *              than to note whether it has legal moves.
      * @return the number of win-points
      */
+    static simResultMCT simulate(Board state) {
+        return simulate(state, null, null);
+    } // simulate(Board)
 
-    private static simResultMCT simulate(MCTNode node, MCTNode root) {
-        /* Set the current board and the maximum depth to simulate to */
-        Board gameState = node.currentState;
+    /**
+     * Randomly simulates the finish of the game from the current game state,
+     * recording the moves played.
+     * 
+     * @param state       The position at the terminating node. It isn't changed,
+     *                    other than to note whether it has legal moves.
+     * @param path        The path the moves are recorded on, or null
+     * @param evaluations The queue to batch the evaluation of an unfinished game
+     *                    on, or null
+     * @return the number of win-points
+     */
+    static simResultMCT simulate(Board state, SearchPath path, EvaluationQueue evaluations) {
+        /*
+         * Copy the node's board once and play the rollout on it in place. The maximum
+         * depth to simulate to is set here as well.
+         */
+        Board gameState = state.copyBoard();
         int depthThresh = 100;
         int depth = 0;
 
         /* Run the loop while the game is undecided */
         while (true) {
-            Move nextMove = gameState.ranNextMove(ThreadLocalRandom.current());
+            int nextMove = gameState.ranNextPackedMove(ThreadLocalRandom.current());
+            if (depth == 0) {
+                state.hasLegalMoves = gameState.hasLegalMoves;
+            } // if
 
             if (depth++ > depthThresh) {
-                double ANNeval = ann.predict(ANNVector.createVector(gameState))[0];
+                double ANNeval = predict(gameState, evaluations);
                 return new simResultMCT(ANNeval, depth);
             } 
             /*
              * If the game is checkmate/stalemate or if the depth is too far, end the game
              */
-            if (nextMove == null) {
+            if (nextMove == PackedMove.NONE) {
                 double vicPoints = gameState.vicPoints();
-                // double rew = reward(depth, vicPoints, gameState, root, root.playOuts.get());
+                // double rew = reward(depth, vicPoints, gameState, root, pool.playOuts(root));
                 return new simResultMCT(vicPoints, depth);
             } // if
-            gameState = PieceMoves.movePiece(nextMove, gameState);
-            gameState.turnColor = gameState.oppColor();
+            gameState.makeMove(nextMove);
+            if (path != null) {
+                path.addRolloutMove(nextMove);
+            } // if
         } // while
-    } // simulate(MCTNode)
+    } // simulate(Board, SearchPath, EvaluationQueue)
 
     /**
      * Increments the total wins of every previous node by the points based on
      * reward.
-     * Increments total playouts by 1 for each regardless.
+     * Increments total playouts by 1 for each regardless, and removes the virtual
+     * loss select added. Nothing is locked, since every update is an addition.
+     *
+     * The result is only added along the path the simulation took: once to each
+     * move and once to each position on it, even if the path repeats one. A shared
+     * position's other parents aren't updated, so no result is counted twice
+     * wherever the paths meet.
      * 
-     * @param node      The node to backpropagate from (terminating node)
+     * @param path      The path to backpropagate, ending at the terminating node
      * @param winPoints The number of points to be given.
      * @param length    The length of the simulation
      */
-    private static void backPropagate(MCTNode node, double winPoints, int length) {
-        MCTNode curNode = node;
-
-        /* Synchronize the calculations */
-        while (curNode != null) {
-            synchronized (curNode) {
-
-                /* Add the rewards. */
-                int playOuts = curNode.playOuts.incrementAndGet();
-                double wins;
-                if (curNode.currentState.turnColor != curNode.currentState.engineColor) {
-                    wins = curNode.wins.addAndGet(winPoints);
-                } else {
-                    wins = curNode.wins.addAndGet(1 - winPoints);
-                } // if/else
-
-                stdDevHelper(curNode, wins, playOuts, length);
-
-            } // synchronized(node)
-            curNode = curNode.lastMove;
-        } // while
-    } // backPropogate(MCTNode, double, MCTNode)
-
-    public static void stdDevHelper(MCTNode curNode, double wins, int playOuts, int length) {
-        /* Set the new win rate */
-        double winRate = wins / playOuts;
-        curNode.winRate.set(winRate);
-
-        /* Set the new standard Error */
-        if (winRate == 0 || winRate == 1 || playOuts == 0) {
-            curNode.standardErr.set(0.0);
-        } else {
-            double stdError = Math.sqrt((winRate * (1 - winRate)) / playOuts);
-            curNode.standardErr.set(stdError);
-        } // if/else
-
-        double oldMean = curNode.avgLength.get();
-        double delta = length - oldMean;
-
-        /* Update the mean length */
-        double newMean = oldMean + delta / playOuts;
-        curNode.avgLength.set(newMean);
-
-        /* Update the length variance */
-        if (playOuts > 1) {
-            double oldVariance = curNode.lengthstdDev.get();
-            double newVariance = ((playOuts - 1) * oldVariance / playOuts)
-                    + (delta * (length - newMean)) / playOuts;
-            curNode.lengthstdDev.set(newVariance);
-        } else {
-            curNode.lengthstdDev.set(0.0);
-        } // if/else
-
-    }
+    void backPropagate(SearchPath path, double winPoints, int length) {
+        for (int i = path.length - 1; i >= 0; i--) {
+            int curNode = path.nodes[i];
+
+            /* Add the rewards. */
+            Board state = this.pool.board(curNode);
+            double points = (state.turnColor != state.engineColor) ? winPoints : 1 - winPoints;
+            this.pool.addResult(curNode, points, length);
+            if (!path.repeatsPosition(this.pool, i)) {
+                this.pool.addPositionResult(curNode, points);
+            } // if
+            this.pool.removeVirtualLoss(curNode);
+            path.virtualLosses = i;
+        } // for
+    } // backPropogate(SearchPath, double, int)
 
     /**
      * Returns a reward based on some heuristics and the game result.
@@ -319,7 +770,7 @@ public class MCT {
      * @param playOuts  The number of times the root has been played
      * @return A double representing the adjusted reward.
      */
-    private static double reward(int simLength, double result, Board gameState, MCTNode rootNode, int playOuts) {
+    private double reward(int simLength, double result, Board gameState, int rootNode, int playOuts) {
         if (result == 0.5 || playOuts < 25000) {
             return result;
         } // if
@@ -327,8 +778,8 @@ public class MCT {
         double newResult;
         double k = 1; // A double representing a weight for the sigmoid function
 
-        double stdLength = (rootNode.avgLength.get() - simLength) / Math.sqrt(rootNode.lengthstdDev.get());
-        double lengthStdDev = Math.sqrt(rootNode.lengthstdDev.get());
+        double stdLength = (this.pool.avgLength(rootNode) - simLength) / Math.sqrt(this.pool.lengthVariance(rootNode));
+        double lengthStdDev = Math.sqrt(this.pool.lengthVariance(rootNode));
         if (lengthStdDev == 0) {
             return result;
         } // if
@@ -0,0 +1,117 @@
+package utils.MCTUtils;
+
+import utils.Board;
+import utils.PackedMove;
+
+/**
+ * A Monte Carlo Tree Search in the style of PUCT. Instead of playing a random
+ * game out from each leaf, the leaf is evaluated once by the network, and
+ * selection weighs exploration by each move's prior probability, so the search
+ * looks at the moves it expects to be good first.
+ *
+ * Priors come from the move weights, as in MCT. When the network has policy
+ * outputs, one per from and to square after the value, they replace the move
+ * weights' priors once the children are published.
+ *
+ * @author Sebastian Manza
+ */
+public class MCTPUCT extends MCT {
+    /** The exploration parameter, used to balance exploration vs exploitation */
+    public static final double C_PUCT = 1.5;
+
+    /** The value of a move that hasn't been tried yet: even, like a draw */
+    private static final double FIRST_PLAY_VALUE = 0.5;
+
+    /** The number of outputs of a network with a policy: the value, then a from/to move table */
+    private static final int POLICY_OUTPUTS = 1 + 64 * 64;
+
+    /**
+     * Creates a new Monte Carlo Tree using PUCT
+     *
+     * @param currentMove The most recent move made.
+     */
+    public MCTPUCT(Board currentMove) {
+        super(currentMove);
+    } // MCTPUCT(Board)
+
+    /**
+     * Creates a new Monte Carlo Tree using PUCT that searches on the given
+     * engine's threads
+     *
+     * @param currentMove The most recent move made.
+     * @param engine      The engine to search with
+     */
+    public MCTPUCT(Board currentMove, SearchEngine engine) {
+        super(currentMove, engine);
+    } // MCTPUCT(Board, SearchEngine)
+
+    /**
+     * Calculates a value for a node to select using PUCT: its win rate plus an
+     * exploration term in proportion to its prior, which shrinks as the move is
+     * visited. Simulations still in flight count as losses, as in MCT.
+     *
+     * @param node             The node to calculate
+     * @param lastMovePlayouts The visits of the node's parent
+     * @return The value of the node
+     */
+    @Override
+    double UCT(int node, double lastMovePlayouts) {
+        int virtualLoss = this.pool.virtualLoss(node);
+        int visits = this.pool.playOuts(node) + virtualLoss;
+        int positionVisits = this.pool.positionPlayOuts(node) + virtualLoss;
+        double winRate = (positionVisits == 0) ? FIRST_PLAY_VALUE : this.pool.positionWins(node) / positionVisits;
+        return winRate + C_PUCT * this.pool.prior(node) * Math.sqrt(lastMovePlayouts) / (1 + visits);
+    } // UCT(int, double)
+
+    /**
+     * Evaluates a leaf with the network instead of simulating from it. A
+     * finished game is scored by its result.
+     *
+     * @param leaf The position at the terminating node. It isn't changed, other
+     *             than to note whether it has legal moves.
+     * @param path The path to the leaf
+     * @return the number of win-points
+     */
+    @Override
+    simResultMCT evaluate(Board leaf, SearchPath path) {
+        if (!leaf.hasLegalMove(path.moves)) {
+            leaf.hasLegalMoves = false;
+            return new simResultMCT(leaf.vicPoints(), 1);
+        } // if
+        return new simResultMCT(predict(leaf, this.evaluations), 1);
+    } // evaluate(Board, SearchPath)
+
+    /**
+     * Replaces the move weight priors of a published block of children with the
+     * network's policy, if it has one. The network runs after the expansion is
+     * published, batched with the other workers' evaluations, so no worker waits
+     * on it to reach the children.
+     *
+     * @param state The position the children are moves from
+     * @param first The first child
+     * @param count The number of children
+     */
+    @Override
+    void refinePriors(Board state, int first, int count) {
+        if (ann.outputSize() < POLICY_OUTPUTS) {
+            return;
+        } // if
+
+        double[] output = predictOutputs(state, this.evaluations);
+        double total = 0;
+        for (int child = first; child < first + count; child++) {
+            total += output[policyIndex(this.pool.move(child))];
+        } // for
+        if (total <= 0) {
+            return;
+        } // if
+        for (int child = first; child < first + count; child++) {
+            this.pool.setPrior(child, output[policyIndex(this.pool.move(child))] / total);
+        } // for
+    } // refinePriors(Board, int, int)
+
+    /** @return The network output holding a move's policy */
+    private static int policyIndex(int move) {
+        return 1 + (PackedMove.from(move) << 6 | PackedMove.to(move));
+    } // policyIndex(int)
+} // MCTPUCT
@@ -0,0 +1,647 @@
+package utils.MCTUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import utils.Board;
+import utils.PackedMove;
+import utils.PieceMoves;
+
+/**
+ * The nodes of a Monte Carlo tree, stored as columns of primitive arrays
+ * instead of one object per node. A node is an int index into the pool.
+ *
+ * Nodes are handed out from fixed-size chunks that are allocated as the tree
+ * grows and never moved, so an index stays valid for the life of the pool. The
+ * children of a node are allocated as one block inside a single chunk, so they
+ * are found by a first index and a count and scanned in order.
+ *
+ * A node is reached by one move from its parent, and its playout statistics
+ * are those of that move. Positions reached by different move orders are
+ * linked to one canonical node (see TranspositionTable), which holds the
+ * position's children and a second set of statistics shared by every move into
+ * the position. Looking up a node's children always goes through its canonical
+ * node, so the tree is a DAG and parent only gives the node it was created
+ * under.
+ *
+ * The statistics are only ever added to, so threads update them without
+ * locking and the win rate, error and length statistics are worked out from
+ * the totals when read. A node's fixed fields (parent, move, weight, prior,
+ * key, canonical node) are written before its parent's child count is
+ * published, so any thread that sees the children sees them filled in.
+ *
+ * A node only holds its move until a search first reaches it. Its Board is
+ * built from its parent's then (see materialize), so the many children that
+ * are never visited cost a few array slots rather than a board each.
+ *
+ * @author Sebastian Manza
+ */
+public class NodePool {
+
+    /** No node. */
+    public static final int NONE = -1;
+
+    /** log2 of the number of nodes in a chunk */
+    private static final int CHUNK_BITS = 14;
+
+    /** The number of nodes in a chunk, and so the most children a node can have */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The most chunks a pool can hold */
+    private static final int MAX_CHUNKS = 1 << 12;
+
+    /** The bytes each node takes in a chunk's columns (see Chunk) */
+    public static final int NODE_BYTES = 16 * Integer.BYTES + Float.BYTES + 6 * Long.BYTES;
+
+    /** Roughly the bytes a built Board takes */
+    public static final int BOARD_BYTES = 320;
+
+    /** The fixed-point scale win points are stored at (win points are in [0, 1]) */
+    private static final double WIN_SCALE = 1 << 20;
+
+    /** A position whose result isn't known yet */
+    public static final int UNPROVEN = 0;
+
+    /** A position the side that moved into it wins with best play */
+    public static final int PROVEN_WIN = 1;
+
+    /** A position the side that moved into it loses with best play */
+    public static final int PROVEN_LOSS = 2;
+
+    /** A position that is drawn with best play */
+    public static final int PROVEN_DRAW = 3;
+
+    /** The child count of a node that hasn't been expanded */
+    private static final int UNEXPANDED = -1;
+
+    /** The child count of a node a thread is expanding */
+    private static final int EXPANDING = -2;
+
+    /** One chunk of CHUNK_SIZE nodes */
+    private static final class Chunk {
+        final int[] parent = new int[CHUNK_SIZE];
+        final int[] canonical = new int[CHUNK_SIZE];
+        final int[] firstChild = new int[CHUNK_SIZE];
+        final AtomicIntegerArray childCount = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicIntegerArray claimedChildren = new AtomicIntegerArray(CHUNK_SIZE);
+        final int[] move = new int[CHUNK_SIZE];
+        final int[] weight = new int[CHUNK_SIZE];
+        final float[] prior = new float[CHUNK_SIZE];
+        final long[] key = new long[CHUNK_SIZE];
+        final AtomicReferenceArray<Board> board = new AtomicReferenceArray<>(CHUNK_SIZE);
+        final AtomicIntegerArray playOuts = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicIntegerArray virtualLoss = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicLongArray wins = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicLongArray lengthSum = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicLongArray lengthSquareSum = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicIntegerArray positionPlayOuts = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicLongArray positionWins = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicIntegerArray amafPlayOuts = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicLongArray amafWins = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicIntegerArray pruned = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicIntegerArray proven = new AtomicIntegerArray(CHUNK_SIZE);
+    } // class Chunk
+
+    private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /** The index the next node will be allocated at */
+    private final AtomicInteger next = new AtomicInteger(0);
+
+    /** The number of chunks allocated */
+    private final AtomicInteger chunkCount = new AtomicInteger(0);
+
+    /** The number of boards built */
+    private final AtomicInteger boardCount = new AtomicInteger(0);
+
+    private Chunk chunk(int node) {
+        return this.chunks.get(node >>> CHUNK_BITS);
+    } // chunk(int)
+
+    /**
+     * Allocates a block of nodes that don't cross a chunk. The nodes aren't
+     * initialized; see init.
+     *
+     * @param count The number of nodes (at most CHUNK_SIZE)
+     * @return The index of the first node
+     * @throws IllegalStateException if the pool is full
+     */
+    public int allocate(int count) {
+        if (count < 1 || count > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Can't allocate " + count + " nodes");
+        } // if
+
+        int first;
+        int start;
+        do {
+            first = this.next.get();
+            /* Skip to the next chunk if the block would run off the end of this one */
+            start = ((first & CHUNK_MASK) + count > CHUNK_SIZE) ? (first | CHUNK_MASK) + 1 : first;
+            if ((start >>> CHUNK_BITS) >= MAX_CHUNKS || start + count < 0) {
+                throw new IllegalStateException("Node pool is full");
+            } // if
+        } while (!this.next.compareAndSet(first, start + count));
+
+        int chunk = start >>> CHUNK_BITS;
+        if (this.chunks.get(chunk) == null) {
+            synchronized (this) {
+                if (this.chunks.get(chunk) == null) {
+                    this.chunks.set(chunk, new Chunk());
+                    this.chunkCount.incrementAndGet();
+                } // if
+            } // synchronized
+        } // if
+        return start;
+    } // allocate(int)
+
+    /**
+     * Fills in a freshly allocated node. Its board is built when first needed.
+     *
+     * @param node   The node
+     * @param parent The parent node, or NONE for a root
+     * @param move   The packed move that led to the node, or PackedMove.NONE
+     * @param weight The weight of that move
+     * @param key    The Zobrist key of the position at the node
+     */
+    public void init(int node, int parent, int move, int weight, long key) {
+        Chunk c = chunk(node);
+        int i = node & CHUNK_MASK;
+        c.parent[i] = parent;
+        c.canonical[i] = node;
+        c.firstChild[i] = NONE;
+        c.move[i] = move;
+        c.weight[i] = weight;
+        c.prior[i] = 0f;
+        c.key[i] = key;
+        c.board.set(i, null);
+        c.claimedChildren.set(i, 0);
+        c.childCount.set(i, UNEXPANDED);
+    } // init(int, int, int, int, long)
+
+    /**
+     * Allocates and fills in a root node.
+     *
+     * @param board The position at the root
+     * @return The root node
+     */
+    public int newRoot(Board board) {
+        int root = allocate(1);
+        init(root, NONE, PackedMove.NONE, board.moveWeight, board.zobristKey());
+        chunk(root).board.set(root & CHUNK_MASK, board);
+        this.boardCount.incrementAndGet();
+        return root;
+    } // newRoot(Board)
+
+    /**
+     * Copies the part of another pool reachable from a node into this one,
+     * statistics included, so the rest of that pool can be let go. Positions
+     * shared in the source are shared again through the given table. The copy's
+     * root has no parent and no virtual loss. Nothing may be searching the source
+     * meanwhile.
+     *
+     * @param source The pool to copy from
+     * @param node   The root of the subtree to copy
+     * @param table  The (empty) transposition table of this pool
+     * @return The root of the copy in this pool
+     */
+    public int copySubtree(NodePool source, int node, TranspositionTable table) {
+        int root = allocate(1);
+        copyNode(source, node, root, NONE);
+
+        /* Copy breadth first, a whole block of children at a time */
+        int[] pending = new int[64];
+        pending[0] = node;
+        pending[1] = root;
+        int head = 0;
+        int tail = 2;
+        while (head < tail) {
+            int from = pending[head++];
+            int to = pending[head++];
+
+            /*
+             * Only the first copy of a position takes its children. Later ones link to
+             * it, and one the table has no room for is left to be expanded again.
+             */
+            int shared = table.putIfAbsent(source.key(from), to);
+            if (shared != to) {
+                if (shared != NodePool.NONE) {
+                    linkTransposition(to, shared);
+                } // if
+                continue;
+            } // if
+            int position = source.canonical(from);
+            Chunk src = source.chunk(position);
+            Chunk dst = chunk(to);
+            dst.positionPlayOuts.set(to & CHUNK_MASK, src.positionPlayOuts.get(position & CHUNK_MASK));
+            dst.positionWins.set(to & CHUNK_MASK, src.positionWins.get(position & CHUNK_MASK));
+            dst.claimedChildren.set(to & CHUNK_MASK, src.claimedChildren.get(position & CHUNK_MASK));
+            dst.proven.set(to & CHUNK_MASK, src.proven.get(position & CHUNK_MASK));
+            if (!source.isExpanded(from)) {
+                continue;
+            } // if
+
+            int count = source.childCount(from);
+            int first = (count > 0) ? allocate(count) : NONE;
+            for (int i = 0; i < count; i++) {
+                copyNode(source, source.firstChild(from) + i, first + i, to);
+                if (tail + 2 > pending.length) {
+                    /* Drop the handled pairs before growing */
+                    System.arraycopy(pending, head, pending, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                    if (tail + 2 > pending.length) {
+                        pending = Arrays.copyOf(pending, pending.length * 2);
+                    } // if
+                } // if
+                pending[tail++] = source.firstChild(from) + i;
+                pending[tail++] = first + i;
+            } // for
+            setChildren(to, first, count);
+        } // while
+        return root;
+    } // copySubtree(NodePool, int, TranspositionTable)
+
+    /**
+     * Copies one node's fields and statistics from another pool. Its children are
+     * left unexpanded.
+     */
+    private void copyNode(NodePool source, int from, int to, int parent) {
+        init(to, parent, source.move(from), source.weight(from), source.key(from));
+        Chunk src = source.chunk(from);
+        Chunk dst = chunk(to);
+        int i = from & CHUNK_MASK;
+        int j = to & CHUNK_MASK;
+        dst.prior[j] = src.prior[i];
+        dst.board.set(j, src.board.get(i));
+        if (src.board.get(i) != null) {
+            this.boardCount.incrementAndGet();
+        } // if
+        dst.playOuts.set(j, src.playOuts.get(i));
+        dst.wins.set(j, src.wins.get(i));
+        dst.lengthSum.set(j, src.lengthSum.get(i));
+        dst.lengthSquareSum.set(j, src.lengthSquareSum.get(i));
+        dst.amafPlayOuts.set(j, src.amafPlayOuts.get(i));
+        dst.amafWins.set(j, src.amafWins.get(i));
+        dst.pruned.set(j, src.pruned.get(i));
+    } // copyNode(NodePool, int, int, int)
+
+    /** @return The number of nodes allocated, including any skipped at chunk ends */
+    public int size() {
+        return Math.min(this.next.get(), MAX_CHUNKS * CHUNK_SIZE);
+    } // size()
+
+    /** @return The number of boards built */
+    public int boardCount() {
+        return this.boardCount.get();
+    } // boardCount()
+
+    /** @return Roughly the bytes the pool's chunks and boards take */
+    public long footprintBytes() {
+        return (long) this.chunkCount.get() * CHUNK_SIZE * NODE_BYTES + (long) boardCount() * BOARD_BYTES;
+    } // footprintBytes()
+
+    public int parent(int node) {
+        return chunk(node).parent[node & CHUNK_MASK];
+    } // parent(int)
+
+    public int move(int node) {
+        return chunk(node).move[node & CHUNK_MASK];
+    } // move(int)
+
+    public int weight(int node) {
+        return chunk(node).weight[node & CHUNK_MASK];
+    } // weight(int)
+
+    /**
+     * @param node The node
+     * @return The prior probability of the node's move among its siblings
+     */
+    public double prior(int node) {
+        return chunk(node).prior[node & CHUNK_MASK];
+    } // prior(int)
+
+    /**
+     * Sets the prior probability of a node's move. It should be set before the
+     * node's parent publishes its children. It may be replaced after, and other
+     * workers see the new prior when they see it, which is harmless since the old
+     * one is still a valid prior.
+     *
+     * @param node  The node
+     * @param prior The probability
+     */
+    public void setPrior(int node, double prior) {
+        chunk(node).prior[node & CHUNK_MASK] = (float) prior;
+    } // setPrior(int, double)
+
+    public long key(int node) {
+        return chunk(node).key[node & CHUNK_MASK];
+    } // key(int)
+
+    /**
+     * @param node The node
+     * @return The position at the node, or null if it hasn't been built yet
+     */
+    public Board board(int node) {
+        return chunk(node).board.get(node & CHUNK_MASK);
+    } // board(int)
+
+    /**
+     * Gets the position at a node, building it from its parent's the first time.
+     * If two threads build it at once, both get the board that was stored first.
+     *
+     * @param node The node
+     * @return The position at the node
+     */
+    public Board materialize(int node) {
+        Chunk c = chunk(node);
+        int i = node & CHUNK_MASK;
+        Board board = c.board.get(i);
+        if (board != null) {
+            return board;
+        } // if
+
+        board = PieceMoves.movePiece(c.move[i], materialize(c.parent[i]));
+        board.moveWeight = c.weight[i];
+        board.turnColor = board.oppColor();
+        if (!c.board.compareAndSet(i, null, board)) {
+            return c.board.get(i);
+        } // if
+        this.boardCount.incrementAndGet();
+        return board;
+    } // materialize(int)
+
+    /**
+     * @param node The node
+     * @return The node holding the position's children and shared statistics
+     */
+    public int canonical(int node) {
+        return chunk(node).canonical[node & CHUNK_MASK];
+    } // canonical(int)
+
+    /**
+     * Makes a freshly initialized node share the children and position
+     * statistics of another node with the same position. This must be done
+     * before the node's parent publishes its children.
+     *
+     * @param node      The node
+     * @param canonical The node already holding the position
+     */
+    public void linkTransposition(int node, int canonical) {
+        chunk(node).canonical[node & CHUNK_MASK] = canonical(canonical);
+    } // linkTransposition(int, int)
+
+    /**
+     * @param node The node
+     * @return The first of the position's children. Only valid once it is
+     *         expanded.
+     */
+    public int firstChild(int node) {
+        int c = canonical(node);
+        return chunk(c).firstChild[c & CHUNK_MASK];
+    } // firstChild(int)
+
+    /**
+     * @param node The node
+     * @return The number of children, or 0 if it isn't expanded yet
+     */
+    public int childCount(int node) {
+        int c = canonical(node);
+        return Math.max(chunk(c).childCount.get(c & CHUNK_MASK), 0);
+    } // childCount(int)
+
+    /** @return Has the position been given its children? */
+    public boolean isExpanded(int node) {
+        int c = canonical(node);
+        return chunk(c).childCount.get(c & CHUNK_MASK) >= 0;
+    } // isExpanded(int)
+
+    /** @return Is a thread expanding the position right now? */
+    public boolean isExpanding(int node) {
+        int c = canonical(node);
+        return chunk(c).childCount.get(c & CHUNK_MASK) == EXPANDING;
+    } // isExpanding(int)
+
+    /**
+     * Gives up a claim on a position's expansion, leaving it unexpanded.
+     *
+     * @param node The node claimed with claimExpansion
+     */
+    public void releaseExpansion(int node) {
+        int c = canonical(node);
+        chunk(c).childCount.set(c & CHUNK_MASK, UNEXPANDED);
+    } // releaseExpansion(int)
+
+    /**
+     * Claims a position for expansion. Only one thread gets the claim, and it
+     * must follow it with setChildren.
+     *
+     * @param node The node
+     * @return Whether this thread should expand the node
+     */
+    public boolean claimExpansion(int node) {
+        int c = canonical(node);
+        return chunk(c).childCount.compareAndSet(c & CHUNK_MASK, UNEXPANDED, EXPANDING);
+    } // claimExpansion(int)
+
+    /**
+     * Publishes the children of a position. The children must be initialized
+     * first.
+     *
+     * @param node       The node
+     * @param firstChild The first child, or NONE if there are none
+     * @param count      The number of children
+     */
+    public void setChildren(int node, int firstChild, int count) {
+        int c = canonical(node);
+        Chunk chunk = chunk(c);
+        int i = c & CHUNK_MASK;
+        chunk.firstChild[i] = firstChild;
+        chunk.childCount.set(i, count);
+    } // setChildren(int, int, int)
+
+    /**
+     * Claims the next of a position's children for a worker, so workers that
+     * reach a new position at once each start on a different child.
+     *
+     * @param node  The node
+     * @param limit The number of children that may be claimed
+     * @return The index of the claimed child in the block of children, or at
+     *         least limit once they have all been claimed
+     */
+    public int claimChild(int node, int limit) {
+        int c = canonical(node);
+        AtomicIntegerArray claimed = chunk(c).claimedChildren;
+        if (claimed.get(c & CHUNK_MASK) >= limit) {
+            return limit;
+        } // if
+        return claimed.getAndIncrement(c & CHUNK_MASK);
+    } // claimChild(int, int)
+
+    /**
+     * @param node The node
+     * @return The proven result of the node's position, for the side that moved
+     *         into it, or UNPROVEN
+     */
+    public int proven(int node) {
+        int c = canonical(node);
+        return chunk(c).proven.get(c & CHUNK_MASK);
+    } // proven(int)
+
+    /**
+     * Records the proven result of a node's position. A result never changes
+     * once it is proven, so only the first one recorded is kept.
+     *
+     * @param node   The node
+     * @param result PROVEN_WIN, PROVEN_LOSS or PROVEN_DRAW, for the side that
+     *               moved into the position
+     */
+    public void setProven(int node, int result) {
+        int c = canonical(node);
+        chunk(c).proven.compareAndSet(c & CHUNK_MASK, UNPROVEN, result);
+    } // setProven(int, int)
+
+    /** @return Has the node been pruned from selection? (see MCTPPR) */
+    public boolean isPruned(int node) {
+        return chunk(node).pruned.get(node & CHUNK_MASK) != 0;
+    } // isPruned(int)
+
+    /**
+     * Prunes a node from selection for good.
+     *
+     * @param node The node
+     * @return Whether this call pruned it, rather than another before it
+     */
+    public boolean prune(int node) {
+        return chunk(node).pruned.compareAndSet(node & CHUNK_MASK, 0, 1);
+    } // prune(int)
+
+    /**
+     * Records the result of one simulation through a node.
+     *
+     * @param node      The node
+     * @param winPoints The points won by the side that moved into the node
+     * @param length    The length of the simulation
+     */
+    public void addResult(int node, double winPoints, int length) {
+        Chunk c = chunk(node);
+        int i = node & CHUNK_MASK;
+        c.wins.getAndAdd(i, Math.round(winPoints * WIN_SCALE));
+        c.lengthSum.getAndAdd(i, length);
+        c.lengthSquareSum.getAndAdd(i, (long) length * length);
+        c.playOuts.getAndIncrement(i);
+    } // addResult(int, double, int)
+
+    /**
+     * Records the result of one simulation through a node's position, which
+     * every move into the position shares.
+     *
+     * @param node      The node
+     * @param winPoints The points won by the side that moved into the position
+     */
+    public void addPositionResult(int node, double winPoints) {
+        int c = canonical(node);
+        Chunk chunk = chunk(c);
+        chunk.positionWins.getAndAdd(c & CHUNK_MASK, Math.round(winPoints * WIN_SCALE));
+        chunk.positionPlayOuts.getAndIncrement(c & CHUNK_MASK);
+    } // addPositionResult(int, double)
+
+    /**
+     * Records the result of a simulation that played the node's move later on,
+     * rather than from the node's parent (all-moves-as-first, see MCTRAVE).
+     *
+     * @param node      The node
+     * @param winPoints The points won by the side that made the move
+     */
+    public void addAMAFResult(int node, double winPoints) {
+        Chunk c = chunk(node);
+        int i = node & CHUNK_MASK;
+        c.amafWins.getAndAdd(i, Math.round(winPoints * WIN_SCALE));
+        c.amafPlayOuts.getAndIncrement(i);
+    } // addAMAFResult(int, double)
+
+    /** @return The number of simulations that played the node's move as any later move */
+    public int amafPlayOuts(int node) {
+        return chunk(node).amafPlayOuts.get(node & CHUNK_MASK);
+    } // amafPlayOuts(int)
+
+    /** @return The total wins/draws of those simulations */
+    public double amafWins(int node) {
+        return chunk(node).amafWins.get(node & CHUNK_MASK) / WIN_SCALE;
+    } // amafWins(int)
+
+    /** @return The number of simulations through the node's position, by any path */
+    public int positionPlayOuts(int node) {
+        int c = canonical(node);
+        return chunk(c).positionPlayOuts.get(c & CHUNK_MASK);
+    } // positionPlayOuts(int)
+
+    /** @return The total wins/draws of the node's position, by any path */
+    public double positionWins(int node) {
+        int c = canonical(node);
+        return chunk(c).positionWins.get(c & CHUNK_MASK) / WIN_SCALE;
+    } // positionWins(int)
+
+    /** @return The number of times the node was attempted */
+    public int playOuts(int node) {
+        return chunk(node).playOuts.get(node & CHUNK_MASK);
+    } // playOuts(int)
+
+    /**
+     * @param node The node
+     * @return The number of workers whose simulation through the node hasn't
+     *         been backpropagated yet
+     */
+    public int virtualLoss(int node) {
+        return chunk(node).virtualLoss.get(node & CHUNK_MASK);
+    } // virtualLoss(int)
+
+    public void addVirtualLoss(int node) {
+        chunk(node).virtualLoss.getAndIncrement(node & CHUNK_MASK);
+    } // addVirtualLoss(int)
+
+    public void removeVirtualLoss(int node) {
+        chunk(node).virtualLoss.getAndDecrement(node & CHUNK_MASK);
+    } // removeVirtualLoss(int)
+
+    /** @return The total wins/draws of the node */
+    public double wins(int node) {
+        return chunk(node).wins.get(node & CHUNK_MASK) / WIN_SCALE;
+    } // wins(int)
+
+    /** @return The winrate of the node */
+    public double winRate(int node) {
+        int playOuts = playOuts(node);
+        return (playOuts == 0) ? 0.0 : Math.min(wins(node) / playOuts, 1.0);
+    } // winRate(int)
+
+    /** @return The stderr of the winrate */
+    public double standardErr(int node) {
+        int playOuts = playOuts(node);
+        double winRate = winRate(node);
+        if (winRate == 0 || winRate == 1 || playOuts == 0) {
+            return 0.0;
+        } // if
+        return Math.sqrt((winRate * (1 - winRate)) / playOuts);
+    } // standardErr(int)
+
+    /** @return The average length of a simulation from the node */
+    public double avgLength(int node) {
+        int playOuts = playOuts(node);
+        return (playOuts == 0) ? 0.0 : (double) chunk(node).lengthSum.get(node & CHUNK_MASK) / playOuts;
+    } // avgLength(int)
+
+    /** @return The variance of the lengths */
+    public double lengthVariance(int node) {
+        int playOuts = playOuts(node);
+        if (playOuts < 2) {
+            return 0.0;
+        } // if
+        double mean = avgLength(node);
+        double squares = (double) chunk(node).lengthSquareSum.get(node & CHUNK_MASK) / playOuts;
+        return Math.max(squares - mean * mean, 0.0);
+    } // lengthVariance(int)
+} // class NodePool
@@ -0,0 +1,91 @@
+package utils.MCTUtils;
+
+/**
+ * The settings of one MCT search. The defaults search the way MCT always has:
+ * a node is expanded the first time it is selected and all of its children
+ * are considered at once.
+ *
+ * @author Sebastian Manza
+ */
+public class SearchConfig {
+
+    /**
+     * The number of simulations a position needs before it is expanded. Until
+     * then searches simulate from the position itself.
+     */
+    public int expandThreshold = 0;
+
+    /**
+     * Whether selection only considers a node's best few children, ordered by
+     * move weight, and widens as the node is visited more.
+     */
+    public boolean progressiveWidening = false;
+
+    /** The number of children considered is wideningConstant * visits^wideningExponent */
+    public double wideningConstant = 2.0;
+
+    /** See wideningConstant */
+    public double wideningExponent = 0.5;
+
+    /**
+     * The most nodes the tree may hold, or 0 for no limit. Once reached, no more
+     * positions are expanded and searches simulate from the leaves they reach.
+     */
+    public int maxNodes = 0;
+
+    /**
+     * Roughly the most bytes the tree may take (see MCT.footprintBytes), or 0 for
+     * no limit. Handled like maxNodes.
+     */
+    public long maxBytes = 0;
+
+    /**
+     * The most leaf positions evaluated by the network at once, gathered from
+     * all workers (see EvaluationQueue). At 1 each worker evaluates its own. A
+     * batch can't hold more positions than the engine has workers.
+     */
+    public int evalBatchSize = 1;
+
+    /** The longest, in microseconds, a position waits for its batch to fill */
+    public long evalMaxWaitMicros = 200;
+
+    /**
+     * How many iterations a worker runs between looks at the clock. Higher
+     * wastes less time reading it, lower overruns the deadline by less.
+     */
+    public int deadlineCheckInterval = 4;
+
+    /**
+     * Whether to stop early when the best move is settled and to run past the
+     * given time while the top two moves are close (see TimeManager). If not,
+     * searches run for exactly the time given, unless the root is proven.
+     */
+    public boolean manageTime = false;
+
+    /** The most a search may run, as a multiple of the time it is given */
+    public double hardLimitFactor = 1.5;
+
+    /**
+     * How close the top two moves' playouts must be, as a fraction of the best's,
+     * for a search to run past the time it was given.
+     */
+    public double closeMargin = 0.1;
+
+    /** The playouts the runner-up needs before confidence intervals can end a search */
+    public int minSeparationPlayOuts = 100;
+
+    /**
+     * Gets the number of children selection may choose from.
+     *
+     * @param visits     The number of simulations through the node
+     * @param childCount The number of children the node has
+     * @return How many of the first children to consider
+     */
+    public int width(int visits, int childCount) {
+        if (!this.progressiveWidening) {
+            return childCount;
+        } // if
+        int width = (int) Math.ceil(this.wideningConstant * Math.pow(visits, this.wideningExponent));
+        return Math.max(1, Math.min(width, childCount));
+    } // width(int, int)
+} // class SearchConfig
@@ -0,0 +1,171 @@
+package utils.MCTUtils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs MCT searches on a pool of worker threads that lives across searches, so
+ * a search doesn't pay for starting and stopping threads.
+ *
+ * Workers run until their search's stop flag is set, either by a worker whose
+ * TimeManager says the search is done or by a call to stop. Each search gets a
+ * flag of its own, published before its workers start, so a stop once the
+ * search has begun always takes effect. To keep the clock off the hot path,
+ * each worker only asks every few iterations (see
+ * SearchConfig.deadlineCheckInterval). A search returns once every worker has
+ * finished its last iteration, even if one failed or the caller was
+ * interrupted, so nothing is still changing the tree after.
+ *
+ * A worker whose pass throws takes the pass's virtual loss back off the tree
+ * and stops the search, which still returns its best move so far.
+ *
+ * @author Sebastian Manza
+ */
+public class SearchEngine implements AutoCloseable {
+
+    /** The engine trees use when they aren't given one */
+    private static SearchEngine shared;
+
+    private final ExecutorService workers;
+
+    private final int threads;
+
+    /** The stop flag of the running or last search. Set to end it. */
+    private volatile AtomicBoolean stopRequested = new AtomicBoolean(true);
+
+    /**
+     * Creates an engine with a worker per processor.
+     */
+    public SearchEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    } // SearchEngine()
+
+    /**
+     * @param threads The number of worker threads
+     */
+    public SearchEngine(int threads) {
+        this.threads = threads;
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mct-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    } // SearchEngine(int)
+
+    /** @return The number of worker threads */
+    public int threads() {
+        return this.threads;
+    } // threads()
+
+    /**
+     * @return The engine shared by trees that aren't given one
+     */
+    public static synchronized SearchEngine shared() {
+        if (shared == null) {
+            shared = new SearchEngine();
+        } // if
+        return shared;
+    } // shared()
+
+    /**
+     * Searches a tree until the time manager stops it or stop is called. One
+     * search runs on an engine at a time.
+     *
+     * @param tree The tree to search
+     * @param time Decides when the search has had enough time
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting for the workers
+     */
+    public synchronized void run(MCT tree, TimeManager time) throws InterruptedException {
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        this.stopRequested = stopped;
+        int interval = Math.max(tree.config.deadlineCheckInterval, 1);
+
+        Future<?>[] running = new Future<?>[this.threads];
+        for (int i = 0; i < this.threads; i++) {
+            running[i] = this.workers.submit(() -> work(tree, time, interval, stopped));
+        } // for
+
+        try {
+            for (Future<?> worker : running) {
+                worker.get();
+            } // for
+        } catch (ExecutionException e) {
+            /* Workers catch their own exceptions, so this is a bug */
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            stopped.set(true);
+            awaitAll(running);
+        } // try/catch/finally
+    } // run(MCT, TimeManager)
+
+    /**
+     * Waits for every worker of a search to finish, whatever happened to the
+     * others, so none is left changing the tree. An interrupt while waiting is
+     * kept for the caller.
+     */
+    private static void awaitAll(Future<?>[] running) {
+        boolean interrupted = false;
+        for (Future<?> worker : running) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                } // try/catch
+            } // while
+        } // for
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        } // if
+    } // awaitAll(Future<?>[])
+
+    /**
+     * The loop each worker runs for a search.
+     */
+    private void work(MCT tree, TimeManager time, int interval, AtomicBoolean stopped) {
+        SearchPath path = new SearchPath();
+        int iterations = 0;
+        while (!stopped.get()) {
+            try {
+                tree.iterate(path);
+            } catch (RuntimeException e) {
+                /* A failed pass would most likely fail again, so end the search with what it has */
+                tree.abandon(path);
+                e.printStackTrace();
+                stopped.set(true);
+                return;
+            } catch (Error e) {
+                /* Leave the tree clean for whoever catches it, but don't hide it */
+                tree.abandon(path);
+                stopped.set(true);
+                throw e;
+            } // try/catch
+
+            if (++iterations % interval == 0 && time.shouldStop(tree)) {
+                stopped.set(true);
+            } // if
+        } // while
+    } // work(MCT, TimeManager, int, AtomicBoolean)
+
+    /**
+     * Ends the running search early. The search still returns its best move.
+     */
+    public void stop() {
+        this.stopRequested.set(true);
+    } // stop()
+
+    /**
+     * Shuts the worker threads down once any running search is done.
+     */
+    @Override
+    public void close() {
+        this.workers.shutdown();
+    } // close()
+} // class SearchEngine
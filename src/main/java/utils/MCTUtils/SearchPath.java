@@ -0,0 +1,142 @@
+package utils.MCTUtils;
+
+import java.util.Arrays;
+
+import utils.Board;
+import utils.MoveList;
+import utils.PackedMove;
+
+/**
+ * The nodes one worker passed through from the root, in order. The tree is a
+ * DAG once positions are shared, so a node's parent isn't necessarily the way
+ * it was reached, and results are backpropagated along the path instead. Each
+ * worker reuses one path for every iteration.
+ */
+class SearchPath {
+
+    /** The nodes, root first. Only the first length entries are valid. */
+    int[] nodes = new int[128];
+
+    /** The number of nodes on the path */
+    int length;
+
+    /**
+     * The number of nodes, from the root, that still hold the virtual loss they
+     * were given when added. Backpropagation removes them from the leaf up.
+     */
+    int virtualLosses;
+
+    /** The moves of the simulation from the leaf. Only the first rolloutLength are valid. */
+    int[] rollout = new int[256];
+
+    /** The number of moves in the simulation */
+    int rolloutLength;
+
+    /** A list the worker generates into when it looks at a shared board */
+    final MoveList moves = new MoveList();
+
+    /**
+     * The last ply of the current pass each move was played at, plus one, or 0
+     * if it wasn't played. Indexed by the mover's color, from and to square (see
+     * moveIndex), and only filled while a pass is being backpropagated.
+     */
+    private final int[] playedAt = new int[2 * 64 * 64];
+
+    void clear() {
+        this.length = 0;
+        this.virtualLosses = 0;
+        this.rolloutLength = 0;
+    } // clear()
+
+    void add(int node) {
+        if (this.length == this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, this.length * 2);
+        } // if
+        this.nodes[this.length++] = node;
+        this.virtualLosses = this.length;
+    } // add(int)
+
+    void addRolloutMove(int move) {
+        if (this.rolloutLength == this.rollout.length) {
+            this.rollout = Arrays.copyOf(this.rollout, this.rolloutLength * 2);
+        } // if
+        this.rollout[this.rolloutLength++] = move;
+    } // addRolloutMove(int)
+
+    /** @return The last node on the path */
+    int leaf() {
+        return this.nodes[this.length - 1];
+    } // leaf()
+
+    /**
+     * @param pool The pool the nodes are in
+     * @param node A node
+     * @return Whether the node's position is already on the path
+     */
+    boolean containsPosition(NodePool pool, int node) {
+        return indexOfPosition(pool, node, this.length) != -1;
+    } // containsPosition(NodePool, int)
+
+    /**
+     * @param pool The pool the nodes are in
+     * @param i    An index on the path
+     * @return Whether the position at i also comes earlier on the path
+     */
+    boolean repeatsPosition(NodePool pool, int i) {
+        return indexOfPosition(pool, this.nodes[i], i) != -1;
+    } // repeatsPosition(NodePool, int)
+
+    private int indexOfPosition(NodePool pool, int node, int end) {
+        int position = pool.canonical(node);
+        for (int i = 0; i < end; i++) {
+            if (pool.canonical(this.nodes[i]) == position) {
+                return i;
+            } // if
+        } // for
+        return -1;
+    } // indexOfPosition(NodePool, int, int)
+
+    /**
+     * Notes the ply of every move of the pass: the moves into the path's nodes,
+     * then the simulation's. Must be followed by forgetPlies.
+     *
+     * @param pool The pool the nodes are in
+     */
+    void notePlies(NodePool pool) {
+        for (int i = 1; i < this.length; i++) {
+            this.playedAt[moveIndex(pool.move(this.nodes[i]))] = i;
+        } // for
+        for (int i = 0; i < this.rolloutLength; i++) {
+            this.playedAt[moveIndex(this.rollout[i])] = this.length + i;
+        } // for
+    } // notePlies(NodePool)
+
+    /**
+     * @param move A packed move
+     * @return The last ply the move was played at since notePlies, counting the
+     *         move out of the root as ply 0, or -1 if it wasn't played
+     */
+    int lastPly(int move) {
+        return this.playedAt[moveIndex(move)] - 1;
+    } // lastPly(int)
+
+    /**
+     * Clears what notePlies noted.
+     *
+     * @param pool The pool the nodes are in
+     */
+    void forgetPlies(NodePool pool) {
+        for (int i = 1; i < this.length; i++) {
+            this.playedAt[moveIndex(pool.move(this.nodes[i]))] = 0;
+        } // for
+        for (int i = 0; i < this.rolloutLength; i++) {
+            this.playedAt[moveIndex(this.rollout[i])] = 0;
+        } // for
+    } // forgetPlies(NodePool)
+
+    /** Moves are told apart by the mover's color and their from and to squares */
+    private static int moveIndex(int move) {
+        int color = Board.pieceColor(PackedMove.piece(move));
+        return (color << 12) | (PackedMove.from(move) << 6) | PackedMove.to(move);
+    } // moveIndex(int)
+} // class SearchPath
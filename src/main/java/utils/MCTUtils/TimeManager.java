@@ -0,0 +1,140 @@
+package utils.MCTUtils;
+
+import java.time.Duration;
+
+/**
+ * Decides when a search has spent enough time on a move. The search is given a
+ * soft limit, the time it would normally take, and a hard limit it never runs
+ * past (SearchConfig.hardLimitFactor times the soft limit).
+ *
+ * Before the soft limit the search stops early if the most played root move
+ * can't be overtaken: either the runner-up couldn't catch up even if it got
+ * every playout left before the soft limit, or their win rate confidence
+ * intervals no longer overlap. At the soft limit the search stops unless the
+ * top two moves are still close, in which case it carries on until they aren't
+ * or the hard limit is reached. Moves pruned by MCTPPR aren't counted among
+ * the top two, and once only one move is left the search stops.
+ *
+ * Once the root's result is proven (see MCT's solver) the search stops at once,
+ * whether or not time is managed.
+ *
+ * @author Sebastian Manza
+ */
+public class TimeManager {
+
+    /** The part of the soft limit always searched before stopping early */
+    private static final double MIN_FRACTION = 0.1;
+
+    /** The width of the confidence intervals, in standard errors */
+    private static final double CONFIDENCE_Z = 1.96;
+
+    private final SearchConfig config;
+    private final long start;
+    private final long soft;
+    private final long hard;
+
+    /** The root's playouts when the search started, some of them kept from earlier searches */
+    private final int startPlayOuts;
+
+    /** Why the search stopped, once it has */
+    private volatile String reason;
+
+    /**
+     * @param duration      The soft limit
+     * @param config        The settings of the search
+     * @param startPlayOuts The root's playouts before the search
+     */
+    public TimeManager(Duration duration, SearchConfig config, int startPlayOuts) {
+        this.config = config;
+        this.startPlayOuts = startPlayOuts;
+        this.start = System.nanoTime();
+        this.soft = duration.toNanos();
+        this.hard = config.manageTime ? (long) (this.soft * Math.max(config.hardLimitFactor, 1.0)) : this.soft;
+        this.reason = null;
+    } // TimeManager(Duration, SearchConfig, int)
+
+    /** @return The nanoseconds since the search started */
+    public long elapsedNanos() {
+        return System.nanoTime() - this.start;
+    } // elapsedNanos()
+
+    /** @return Why the search stopped, or null if it hasn't */
+    public String reason() {
+        return this.reason;
+    } // reason()
+
+    /**
+     * Checks whether a search should stop.
+     *
+     * @param tree The tree being searched
+     * @return Whether the search has had enough time
+     */
+    public boolean shouldStop(MCT tree) {
+        if (tree.pool.proven(tree.root) != NodePool.UNPROVEN) {
+            return stop("proven");
+        } // if
+        long elapsed = elapsedNanos();
+        if (elapsed >= this.hard) {
+            return stop(this.config.manageTime ? "hard limit" : "time");
+        } // if
+        if (!this.config.manageTime || elapsed < this.soft * MIN_FRACTION) {
+            return false;
+        } // if
+
+        /* Find the two most played root moves, leaving out any that were pruned */
+        NodePool pool = tree.pool;
+        int count = pool.childCount(tree.root);
+        if (count == 0) {
+            return elapsed >= this.soft && stop("time");
+        } // if
+        int first = pool.firstChild(tree.root);
+        int best = NodePool.NONE;
+        int second = NodePool.NONE;
+        for (int child = first; child < first + count; child++) {
+            if (pool.isPruned(child)) {
+                continue;
+            } // if
+            if (best == NodePool.NONE || pool.playOuts(child) > pool.playOuts(best)) {
+                second = best;
+                best = child;
+            } else if (second == NodePool.NONE || pool.playOuts(child) > pool.playOuts(second)) {
+                second = child;
+            } // if/else
+        } // for
+        if (second == NodePool.NONE) {
+            return stop("only move");
+        } // if
+        int bestPlayOuts = pool.playOuts(best);
+        int secondPlayOuts = pool.playOuts(second);
+        boolean close = secondPlayOuts >= bestPlayOuts * (1 - this.config.closeMargin);
+
+        if (elapsed < this.soft) {
+            /*
+             * Stop if the runner-up can't catch up before the soft limit, at the rate this
+             * search is going. Close moves are left to run into the extra time instead.
+             */
+            double rate = (pool.playOuts(tree.root) - this.startPlayOuts) / (double) elapsed;
+            if (!close && bestPlayOuts - secondPlayOuts > rate * (this.soft - elapsed)) {
+                return stop("insurmountable lead");
+            } // if
+
+            /* Or if the best move's win rate is clearly higher */
+            if (secondPlayOuts >= this.config.minSeparationPlayOuts) {
+                double bestLow = pool.winRate(best) - CONFIDENCE_Z * pool.standardErr(best);
+                double secondHigh = pool.winRate(second) + CONFIDENCE_Z * pool.standardErr(second);
+                if (bestLow > secondHigh) {
+                    return stop("confidence intervals separated");
+                } // if
+            } // if
+            return false;
+        } // if
+
+        /* Past the soft limit, keep going only while the top two are close */
+        return !close && stop("time");
+    } // shouldStop(MCT)
+
+    private boolean stop(String why) {
+        this.reason = why;
+        return true;
+    } // stop(String)
+} // class TimeManager
@@ -0,0 +1,91 @@
+package utils.MCTUtils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free table from a position's Zobrist key to the node that holds the
+ * position's statistics and children, so positions reached by different move
+ * orders share one node.
+ *
+ * The table is open addressed with linear probing and never removes entries.
+ * An entry's key is claimed with a CAS and its node is written after, so a
+ * thread that finds a key whose node isn't written yet waits for it. If a
+ * probe runs too long the position simply isn't shared.
+ *
+ * @author Sebastian Manza
+ */
+public class TranspositionTable {
+
+    /** The default number of entries */
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    /** The most slots looked at before giving up on a key */
+    private static final int MAX_PROBES = 16;
+
+    /** The key of an empty slot. A position whose key is 0 isn't shared. */
+    private static final long EMPTY = 0L;
+
+    private final AtomicLongArray keys;
+    private final AtomicIntegerArray nodes;
+    private final int mask;
+
+    public TranspositionTable() {
+        this(DEFAULT_CAPACITY);
+    } // TranspositionTable()
+
+    /**
+     * @param capacity The number of entries, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.keys = new AtomicLongArray(size);
+        this.nodes = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            this.nodes.set(i, NodePool.NONE);
+        } // for
+        this.mask = size - 1;
+    } // TranspositionTable(int)
+
+    /** @return The bytes the table's arrays take */
+    public long footprintBytes() {
+        return (long) (this.mask + 1) * (Long.BYTES + Integer.BYTES);
+    } // footprintBytes()
+
+    /**
+     * Finds the node for a position, or records the given node for it if there
+     * isn't one.
+     *
+     * @param key  The position's Zobrist key
+     * @param node The node to record if the position is new
+     * @return The position's node (node itself if it was recorded), or NONE if
+     *         the table has no room for it
+     */
+    public int putIfAbsent(long key, int node) {
+        if (key == EMPTY) {
+            return NodePool.NONE;
+        } // if
+
+        int slot = (int) (key ^ (key >>> 32)) & this.mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & this.mask) {
+            long found = this.keys.get(slot);
+            if (found == EMPTY) {
+                if (this.keys.compareAndSet(slot, EMPTY, key)) {
+                    this.nodes.set(slot, node);
+                    return node;
+                } // if
+                found = this.keys.get(slot);
+            } // if
+
+            if (found == key) {
+                /* The thread that claimed the key may not have written its node yet */
+                int existing;
+                while ((existing = this.nodes.get(slot)) == NodePool.NONE) {
+                    Thread.onSpinWait();
+                } // while
+                return existing;
+            } // if
+        } // for
+        return NodePool.NONE;
+    } // putIfAbsent(long, int)
+} // class TranspositionTable
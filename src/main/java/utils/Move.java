@@ -1,5 +1,4 @@
 package utils;
-import java.util.Objects;
 
 public class Move {
     public int startingSquare;
@@ -40,6 +39,7 @@ public class Move {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startingSquare, endingSquare, piece, promotePiece);
+        /* Pack the fields equals compares instead of boxing them for Objects.hash */
+        return (startingSquare & 0xFF) | ((endingSquare & 0xFF) << 8) | (piece << 16);
     }
 }
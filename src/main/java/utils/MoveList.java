@@ -0,0 +1,131 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A reusable buffer of packed moves (see PackedMove) and their weights.
+ * Generators append to it directly, so a list can be cleared and refilled
+ * every ply without allocating.
+ */
+public class MoveList {
+
+    /** The packed moves. Only the first size entries are valid. */
+    public int[] moves;
+
+    /** The weight of each move, matching moves by index. */
+    public int[] weights;
+
+    /** The number of moves in the list. */
+    public int size;
+
+    /** Running totals of the weights, filled by buildCumulative */
+    private int[] cumulative;
+
+    public MoveList() {
+        this(256);
+    } // MoveList()
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+        this.weights = new int[capacity];
+        this.size = 0;
+    } // MoveList(int)
+
+    /**
+     * Appends a move, growing the buffers in the rare case they are full.
+     *
+     * @param move   The packed move
+     * @param weight The weight of the move
+     */
+    public void add(int move, int weight) {
+        if (this.size == this.moves.length) {
+            this.moves = Arrays.copyOf(this.moves, this.size * 2);
+            this.weights = Arrays.copyOf(this.weights, this.size * 2);
+        } // if
+        this.moves[this.size] = move;
+        this.weights[this.size] = weight;
+        this.size++;
+    } // add(int, int)
+
+    /**
+     * Sorts the moves from the highest weight down, keeping moves of equal
+     * weight in the order they were generated.
+     */
+    public void sortByWeight() {
+        for (int i = 1; i < this.size; i++) {
+            int move = this.moves[i];
+            int weight = this.weights[i];
+            int j = i - 1;
+            while (j >= 0 && this.weights[j] < weight) {
+                this.moves[j + 1] = this.moves[j];
+                this.weights[j + 1] = this.weights[j];
+                j--;
+            } // while
+            this.moves[j + 1] = move;
+            this.weights[j + 1] = weight;
+        } // for
+    } // sortByWeight()
+
+    /**
+     * Removes a move by moving the last one into its place, so the order of
+     * the list isn't kept.
+     *
+     * @param index The index of the move to remove
+     */
+    public void removeAt(int index) {
+        this.size--;
+        this.moves[index] = this.moves[this.size];
+        this.weights[index] = this.weights[this.size];
+    } // removeAt(int)
+
+    /**
+     * Fills the table sample searches. Weights below 1 are raised to 1, so
+     * every move can be picked.
+     *
+     * @return The total weight of the list
+     */
+    public int buildCumulative() {
+        if (this.cumulative == null || this.cumulative.length < this.size) {
+            this.cumulative = new int[this.moves.length];
+        } // if
+
+        int total = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (this.weights[i] <= 0) {
+                this.weights[i] = 1;
+            } // if
+            total += this.weights[i];
+            this.cumulative[i] = total;
+        } // for
+        return total;
+    } // buildCumulative()
+
+    /**
+     * Picks an index at random, weighted by the move weights, with a binary
+     * search of the table buildCumulative filled. The list mustn't have
+     * changed since.
+     *
+     * @param rand  A random object
+     * @param total The total buildCumulative returned
+     * @return The index picked
+     */
+    public int sample(Random rand, int total) {
+        int pick = rand.nextInt(total);
+        int low = 0;
+        int high = this.size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.cumulative[mid] <= pick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            } // if/else
+        } // while
+        return low;
+    } // sample(Random, int)
+
+    public void clear() {
+        this.size = 0;
+    } // clear()
+} // class MoveList
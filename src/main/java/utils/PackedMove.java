@@ -0,0 +1,172 @@
+package utils;
+
+/**
+ * Static helpers for moves packed into a single int, so move generation can
+ * fill primitive buffers and the tree can hold moves without allocating Move
+ * objects. Two packed moves are the same move exactly when the ints are equal.
+ *
+ * Bits 0-5 hold the starting square, bits 6-11 the ending square, bits 12-15
+ * the moving piece, bits 16-19 the piece a pawn promotes to (EMPTY if it
+ * doesn't) and bits 20-23 the piece captured (EMPTY if none). The flags start
+ * at bit 24. A castle is stored with the king's starting and ending squares.
+ */
+public class PackedMove {
+
+    /** No move. No real move is 0, since the moving piece is never EMPTY. */
+    public static final int NONE = 0;
+
+    /** Set if the move captures a piece. */
+    public static final int CAPTURE_FLAG = 1 << 24;
+
+    /** Set if the move is a castle. */
+    public static final int CASTLE_FLAG = 1 << 25;
+
+    /** Set if the move is a pawn capturing en passant. */
+    public static final int EN_PASSANT_FLAG = 1 << 26;
+
+    /** Set if the move is a pawn moving two squares from its starting row. */
+    public static final int DOUBLE_PUSH_FLAG = 1 << 27;
+
+    private static final int TO_SHIFT = 6;
+    private static final int PIECE_SHIFT = 12;
+    private static final int PROMOTION_SHIFT = 16;
+    private static final int CAPTURED_SHIFT = 20;
+
+    /**
+     * Packs a move.
+     *
+     * @param from      The starting square
+     * @param to        The ending square
+     * @param piece     The piece being moved
+     * @param captured  The piece being captured, or EMPTY
+     * @param promotion The piece a pawn becomes, or EMPTY
+     * @param flags     Any of the special move flags
+     * @return The packed move
+     */
+    public static int encode(int from, int to, byte piece, byte captured, byte promotion, int flags) {
+        if (captured != PieceTypes.EMPTY) {
+            flags |= CAPTURE_FLAG;
+        } // if
+        return from | (to << TO_SHIFT) | (piece << PIECE_SHIFT) | (promotion << PROMOTION_SHIFT)
+                | (captured << CAPTURED_SHIFT) | flags;
+    } // encode(int, int, byte, byte, byte, int)
+
+    /**
+     * Packs a plain move or capture.
+     *
+     * @param from     The starting square
+     * @param to       The ending square
+     * @param piece    The piece being moved
+     * @param captured The piece being captured, or EMPTY
+     * @return The packed move
+     */
+    public static int encode(int from, int to, byte piece, byte captured) {
+        return encode(from, to, piece, captured, PieceTypes.EMPTY, 0);
+    } // encode(int, int, byte, byte)
+
+    /**
+     * Packs a castle.
+     *
+     * @param kingSquare The square the king starts on
+     * @param king       The king that is castling
+     * @return The packed move
+     */
+    public static int encodeCastle(int kingSquare, byte king) {
+        return encode(kingSquare, kingSquare + 16, king, PieceTypes.EMPTY, PieceTypes.EMPTY, CASTLE_FLAG);
+    } // encodeCastle(int, byte)
+
+    public static int from(int move) {
+        return move & 0x3F;
+    } // from(int)
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & 0x3F;
+    } // to(int)
+
+    public static byte piece(int move) {
+        return (byte) ((move >>> PIECE_SHIFT) & 0xF);
+    } // piece(int)
+
+    public static byte promotion(int move) {
+        return (byte) ((move >>> PROMOTION_SHIFT) & 0xF);
+    } // promotion(int)
+
+    public static byte captured(int move) {
+        return (byte) ((move >>> CAPTURED_SHIFT) & 0xF);
+    } // captured(int)
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != PieceTypes.EMPTY;
+    } // isPromotion(int)
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_FLAG) != 0;
+    } // isCapture(int)
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE_FLAG) != 0;
+    } // isCastle(int)
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT_FLAG) != 0;
+    } // isEnPassant(int)
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH_FLAG) != 0;
+    } // isDoublePush(int)
+
+    /**
+     * Packs a Move, reading the captured piece and en passant from the board. A
+     * castle is a Move with -1 for both squares, so its king square is also taken
+     * from the board. A promotion Move always promotes to a queen.
+     *
+     * @param move  The move to pack
+     * @param board The board the move will be played on
+     * @return The packed move
+     */
+    public static int fromMove(Move move, Board board) {
+        if (move.startingSquare == -1) {
+            int kingSquare = (Board.pieceColor(move.piece) == PieceTypes.WHITE) ? board.whiteKingSquare
+                    : board.blackKingSquare;
+            return encodeCastle(kingSquare, move.piece);
+        } // if
+
+        int from = move.startingSquare;
+        int to = move.endingSquare;
+        byte color = Board.pieceColor(move.piece);
+        byte captured = board.getSquare(to);
+        byte promotion = PieceTypes.EMPTY;
+        int flags = 0;
+
+        if (move.piece == PieceTypes.WHITE_PAWN || move.piece == PieceTypes.BLACK_PAWN) {
+            if (move.promotePiece) {
+                promotion = (color == PieceTypes.WHITE) ? PieceTypes.WHITE_QUEEN : PieceTypes.BLACK_QUEEN;
+            } // if
+            if (Math.abs(to - from) == 2) {
+                flags = DOUBLE_PUSH_FLAG;
+            } else if (to == board.enPassantSquare && captured == PieceTypes.EMPTY && (from >> 3) != (to >> 3)) {
+                flags = EN_PASSANT_FLAG;
+                captured = (color == PieceTypes.WHITE) ? PieceTypes.BLACK_PAWN : PieceTypes.WHITE_PAWN;
+            } // if/else
+        } // if
+        return encode(from, to, move.piece, captured, promotion, flags);
+    } // fromMove(Move, Board)
+
+    /**
+     * Unpacks a move into a Move.
+     *
+     * @param move   The packed move
+     * @param weight The weight to give the Move
+     * @return A new Move
+     */
+    public static Move toMove(int move, int weight) {
+        Move unpacked;
+        if (isCastle(move)) {
+            unpacked = new Move(-1, -1, piece(move));
+        } else {
+            unpacked = new Move(from(move), to(move), piece(move), isPromotion(move));
+        } // if/else
+        unpacked.moveWeight = weight;
+        return unpacked;
+    } // toMove(int, int)
+} // class PackedMove
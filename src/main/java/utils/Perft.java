@@ -0,0 +1,210 @@
+package utils;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth (perft), to
+ * check move generation against known counts and to time it.
+ *
+ * Run with a FEN (or "startpos") and a depth to print the nodes, time and
+ * nodes per second of each depth, followed by a divide of the last depth:
+ *
+ * <pre>
+ * java utils.Perft startpos 5
+ * </pre>
+ *
+ * @author Sebastian Manza
+ */
+public class Perft {
+
+    /** The starting position. */
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * Counts the positions reached after depth moves. Moves are made and unmade
+     * on the board, which is left as it was.
+     *
+     * @param board The position to count from
+     * @param depth The number of plies to search
+     * @return The number of leaf nodes
+     */
+    public static long perft(Board board, int depth) {
+        MoveList[] lists = new MoveList[Math.max(depth, 1)];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        } // for
+        return perft(board, depth, lists);
+    } // perft(Board, int)
+
+    /**
+     * Counts the positions reached after depth moves, generating each ply into
+     * its own reusable list.
+     *
+     * @param board The position to count from
+     * @param depth The number of plies to search
+     * @param lists A move list for each remaining ply
+     * @return The number of leaf nodes
+     */
+    private static long perft(Board board, int depth, MoveList[] lists) {
+        if (depth == 0) {
+            return 1;
+        } // if
+
+        MoveList moves = lists[depth - 1];
+        board.generateLegalMoves(moves);
+        /* The last ply only needs the number of moves, not the moves made */
+        if (depth == 1) {
+            return moves.size;
+        } // if
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size; i++) {
+            board.makeMove(moves.moves[i]);
+            nodes += perft(board, depth - 1, lists);
+            board.unmakeMove();
+        } // for
+        return nodes;
+    } // perft(Board, int, MoveList[])
+
+    /**
+     * Counts the leaf nodes below each root move, to find which move a wrong
+     * count comes from.
+     *
+     * @param board The position to count from
+     * @param depth The number of plies to search, including the root move
+     * @return The count of each root move, in generation order
+     */
+    public static Map<String, Long> divide(Board board, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size; i++) {
+            board.makeMove(moves.moves[i]);
+            counts.put(UIutils.toNotation(moves.moves[i]), perft(board, depth - 1));
+            board.unmakeMove();
+        } // for
+        return counts;
+    } // divide(Board, int)
+
+    /**
+     * Counts the positions reached after depth moves, splitting the root moves
+     * across the common fork/join pool.
+     *
+     * @param board The position to count from. It isn't changed.
+     * @param depth The number of plies to search
+     * @return The number of leaf nodes
+     */
+    public static long parallelPerft(Board board, int depth) {
+        return parallelPerft(board, depth, ForkJoinPool.commonPool());
+    } // parallelPerft(Board, int)
+
+    /**
+     * Counts the positions reached after depth moves, splitting the root moves
+     * across a fork/join pool. Each root move is searched on its own copy of the
+     * board.
+     *
+     * @param board The position to count from. It isn't changed.
+     * @param depth The number of plies to search
+     * @param pool  The pool to run on
+     * @return The number of leaf nodes
+     */
+    public static long parallelPerft(Board board, int depth, ForkJoinPool pool) {
+        if (depth <= 1) {
+            return perft(board, depth);
+        } // if
+        return pool.invoke(new RootTask(board.copyBoard(), depth));
+    } // parallelPerft(Board, int, ForkJoinPool)
+
+    /** Forks one subtask per root move and adds up their counts. */
+    @SuppressWarnings("serial") // never serialized
+    private static class RootTask extends RecursiveTask<Long> {
+        private final Board board;
+        private final int depth;
+
+        RootTask(Board board, int depth) {
+            this.board = board;
+            this.depth = depth;
+        } // RootTask(Board, int)
+
+        @Override
+        protected Long compute() {
+            MoveList moves = new MoveList();
+            this.board.generateLegalMoves(moves);
+            MoveTask[] tasks = new MoveTask[moves.size];
+            for (int i = 0; i < moves.size; i++) {
+                tasks[i] = new MoveTask(PieceMoves.movePiece(moves.moves[i], this.board), this.depth - 1);
+                tasks[i].fork();
+            } // for
+
+            long nodes = 0;
+            for (MoveTask task : tasks) {
+                nodes += task.join();
+            } // for
+            return nodes;
+        } // compute()
+    } // class RootTask
+
+    /** Counts the nodes below one root move on its own board. */
+    @SuppressWarnings("serial") // never serialized
+    private static class MoveTask extends RecursiveTask<Long> {
+        private final Board board;
+        private final int depth;
+
+        MoveTask(Board board, int depth) {
+            /* movePiece leaves the turn alone */
+            board.turnColor = board.oppColor();
+            this.board = board;
+            this.depth = depth;
+        } // MoveTask(Board, int)
+
+        @Override
+        protected Long compute() {
+            return perft(this.board, this.depth);
+        } // compute()
+    } // class MoveTask
+
+    /**
+     * Prints the nodes, time and nodes per second of each depth up to a limit.
+     *
+     * @param pen      The printwriter object to write with
+     * @param board    The position to count from
+     * @param maxDepth The deepest depth to count
+     * @param parallel Whether to split the root moves across threads
+     */
+    public static void report(PrintWriter pen, Board board, int maxDepth, boolean parallel) {
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long nodes = parallel ? parallelPerft(board, depth) : perft(board, depth);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            pen.printf("depth %d: %d nodes in %.1f ms (%.0f nodes/s)\n",
+                    depth, nodes, elapsed / 1e6, nodes * 1e9 / elapsed);
+        } // for
+    } // report(PrintWriter, Board, int, boolean)
+
+    public static void main(String[] args) {
+        PrintWriter pen = new PrintWriter(System.out, true);
+        if (args.length < 2) {
+            pen.println("Usage: Perft <FEN | startpos> <depth> [parallel]");
+            return;
+        } // if
+
+        /* The FEN's fields may come in as separate arguments */
+        int depth = Integer.parseInt(args[args.length - 1].equals("parallel") ? args[args.length - 2]
+                : args[args.length - 1]);
+        boolean parallel = args[args.length - 1].equals("parallel");
+        int fenFields = args.length - (parallel ? 2 : 1);
+        String fen = String.join(" ", Arrays.copyOfRange(args, 0, fenFields));
+        Board board = ReadFEN.readFEN(fen.equals("startpos") ? START_FEN : fen);
+
+        report(pen, board, depth, parallel);
+        pen.println("divide " + depth + ":");
+        for (Map.Entry<String, Long> entry : divide(board, depth).entrySet()) {
+            pen.println(entry.getKey() + ": " + entry.getValue());
+        } // for
+    } // main(String[])
+} // class Perft
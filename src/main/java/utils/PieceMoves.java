@@ -1,11 +1,5 @@
 package utils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
-
-
 public class PieceMoves {
 
     /**
@@ -13,6 +7,36 @@ public class PieceMoves {
      */
     public static final int[] CENTER_SQUARES = { 35, 36, 43, 44 };
 
+    /**
+     * The center control multiplier of a pawn move from each square, indexed
+     * [color][square].
+     */
+    private static final int[][] PAWN_CENTER_WEIGHT = new int[2][64];
+
+    /**
+     * The center control multiplier of a knight move to each square.
+     */
+    private static final int[] KNIGHT_CENTER_WEIGHT = new int[64];
+
+    static {
+        int[] LMoves = { -17, -15, -10, -6, 6, 10, 15, 17 };
+        for (int square = 0; square < 64; square++) {
+            /* Pawns are weighted by the squares they attack after moving forward */
+            for (byte color = PieceTypes.WHITE; color <= PieceTypes.BLACK; color++) {
+                int direction = (color == PieceTypes.WHITE) ? 1 : -1;
+                int forward = square + direction;
+                PAWN_CENTER_WEIGHT[color][square] = controlsCenter(forward + direction + 8)
+                        * controlsCenter(forward + direction - 8);
+            } // for
+
+            /* Knights are weighted by the squares they attack from their new square */
+            KNIGHT_CENTER_WEIGHT[square] = 1;
+            for (int LMove : LMoves) {
+                KNIGHT_CENTER_WEIGHT[square] *= controlsCenter(square + LMove);
+            } // for
+        } // for
+    } // static
+
     /**
      * Returns a weight if the center is controlled
      * 
@@ -92,580 +116,408 @@ public class PieceMoves {
      *                        higher, and bishops and knights)
      */
     public static void addMoveWeight(byte capturedPiece, Move move, int pieceTypeWeight) {
+        move.moveWeight = addMoveWeight(capturedPiece, move.moveWeight, pieceTypeWeight);
+    } // addMoveWeight
+
+    /**
+     * Weight a packed move's weight properly.
+     * 
+     * @param capturedPiece   The piece being captured.
+     * @param moveWeight      The weight of the move so far
+     * @param pieceTypeWeight The amount extra weight being given (pawns have
+     *                        higher, and bishops and knights)
+     * @return The new weight
+     */
+    public static int addMoveWeight(byte capturedPiece, int moveWeight, int pieceTypeWeight) {
         switch (capturedPiece) {
-            case PieceTypes.WHITE_PAWN -> move.moveWeight += 1;
-            case PieceTypes.BLACK_PAWN -> move.moveWeight += 1;
-            case PieceTypes.WHITE_KNIGHT -> move.moveWeight += 6;
-            case PieceTypes.BLACK_KNIGHT -> move.moveWeight += 6;
-            case PieceTypes.WHITE_BISHOP -> move.moveWeight += 7;
-            case PieceTypes.BLACK_BISHOP -> move.moveWeight += 7;
-            case PieceTypes.WHITE_ROOK -> move.moveWeight += 10;
-            case PieceTypes.BLACK_ROOK -> move.moveWeight += 10;
-            case PieceTypes.WHITE_QUEEN -> move.moveWeight += 18;
-            case PieceTypes.BLACK_QUEEN -> move.moveWeight += 18;
+            case PieceTypes.WHITE_PAWN -> moveWeight += 1;
+            case PieceTypes.BLACK_PAWN -> moveWeight += 1;
+            case PieceTypes.WHITE_KNIGHT -> moveWeight += 6;
+            case PieceTypes.BLACK_KNIGHT -> moveWeight += 6;
+            case PieceTypes.WHITE_BISHOP -> moveWeight += 7;
+            case PieceTypes.BLACK_BISHOP -> moveWeight += 7;
+            case PieceTypes.WHITE_ROOK -> moveWeight += 10;
+            case PieceTypes.BLACK_ROOK -> moveWeight += 10;
+            case PieceTypes.WHITE_QUEEN -> moveWeight += 18;
+            case PieceTypes.BLACK_QUEEN -> moveWeight += 18;
             default -> {
             } // switch
         }
-        move.moveWeight *= pieceTypeWeight;
+        return moveWeight * pieceTypeWeight;
     } // addMoveWeight
 
     /**
-     * Apply a move to a board
+     * Apply a move to a copy of a board. Searches that walk a single board should
+     * use Board.makeMove and Board.unmakeMove instead.
      * 
-     * @param startingSquare The original square the piece was on
-     * @param endingSquare   The square for the piece to end up
-     * @param originalBoard  The original board given
+     * @param move          The move to apply
+     * @param originalBoard The original board given
      * @return A board with the piece moved.
      */
     public static Board movePiece(Move move, Board originalBoard) {
-        Board newBoard;
-        /* Make a copy of the original game state */
-        newBoard = originalBoard.copyBoard();
+        /* Make a copy of the original game state and apply the move to it */
+        Board newBoard = originalBoard.copyBoard();
+        newBoard.applyMove(move);
+        return newBoard;
+    } // movePiece(Move, Board)
 
-        /*
-         * Set the ending square to the piece at the starting square. Then clear the
-         * start square.
-         */
-        if (move.startingSquare != -1) {
-        newBoard.setSquare(move.endingSquare, move.piece);
-        newBoard.setSquare(move.startingSquare, PieceTypes.EMPTY);
-
-        if (move.piece == PieceTypes.WHITE_KING) {
-            newBoard.whiteKingSquare = move.endingSquare;
-            if (newBoard.engineColor == PieceTypes.WHITE) {
-            newBoard.canCastle = false;
-            }
-        } else if (move.piece == PieceTypes.BLACK_KING) {
-            newBoard.blackKingSquare = move.endingSquare;
-            newBoard.canCastle = false;
-            if (newBoard.engineColor == PieceTypes.BLACK) {
-                newBoard.canCastle = false;
-            }
-        }
+    /**
+     * Apply a packed move to a copy of a board.
+     * 
+     * @param move          The packed move to apply
+     * @param originalBoard The original board given
+     * @return A board with the piece moved.
+     */
+    public static Board movePiece(int move, Board originalBoard) {
+        Board newBoard = originalBoard.copyBoard();
+        newBoard.applyMove(move);
+        return newBoard;
+    } // movePiece(int, Board)
 
-        if (move.promotePiece == true) {
-            if (move.piece == PieceTypes.WHITE_PAWN) {
-            newBoard.setSquare(move.endingSquare, PieceTypes.WHITE_QUEEN);
-            } else {
-                newBoard.setSquare(move.endingSquare, PieceTypes.BLACK_QUEEN);
-            }
-        }
-    } else {
-        int kingSquare = (Board.pieceColor(move.piece) == PieceTypes.WHITE) ? newBoard.whiteKingSquare : newBoard.blackKingSquare;
-        byte rook = (Board.pieceColor(move.piece) == PieceTypes.WHITE) ? PieceTypes.WHITE_ROOK : PieceTypes.BLACK_ROOK;
-        newBoard.setSquare(kingSquare, PieceTypes.EMPTY);
-        newBoard.setSquare(kingSquare + 24, PieceTypes.EMPTY);
-        newBoard.setSquare(kingSquare + 16, move.piece);
-        newBoard.setSquare(kingSquare + 8, rook);
-    } //else
-    return newBoard;
-    }
+    /** The weight every move starts with. */
+    private static final int BASE_WEIGHT = 2;
 
     /**
      * Generates all possible moves of the pawn located on the square.
      *
      * @param square The square the pawn is located on.
      * @param color  The color of the piece.
-     * @return A list of possible boards after the pawn has moved.
+     * @param moves  The list to add the moves to.
      */
-    public static Move[] pawnMoves(int square, byte color, Board currentState) {
-        /*
-         * Without promotion, a pawn has a maximum of 4 possible moves: two takes and
-         * two forwards(if on starting square.)
-         */
-        Move[] pawnMoves = new Move[4];
-        int numMoves = 0;
-
+    public static void pawnMoves(int square, byte color, Board currentState, MoveList moves) {
         /* Assign some rows and directions based on color: */
         int direction = (color == PieceTypes.WHITE) ? 1 : -1;
         byte pawnType = (color == PieceTypes.WHITE) ? PieceTypes.WHITE_PAWN : PieceTypes.BLACK_PAWN;
-        int[] captures = { direction + 8, direction - 8 };
         int startingRow = (color == PieceTypes.WHITE) ? 1 : 6;
         int promotionRow = (color == PieceTypes.WHITE) ? 6 : 1;
+        int lastRow = (color == PieceTypes.WHITE) ? 7 : 0;
 
-        boolean onStartingSquare = (square % 8 == startingRow);
-        boolean reachPromotionSquare = (square % 8 == promotionRow);
+        int row = square & 7;
+        boolean onStartingSquare = (row == startingRow);
+        boolean reachPromotionSquare = (row == promotionRow);
 
-        int forward = square + direction;
-        if (forward > 63 || forward < 0) {
-            return Arrays.copyOfRange(pawnMoves, 0, numMoves);
-        }
-
-        /* If it can reach the promotion square, expand the number of possible moves. */
-        if (reachPromotionSquare) {
-            pawnMoves = Arrays.copyOf(pawnMoves, 12);
+        if (row == lastRow) {
+            return;
         } // if
+        int forward = square + direction;
+        int centerWeight = PAWN_CENTER_WEIGHT[color][square];
 
         /* Create the forward moves if nothing is in front. */
-        if (currentState.getSquare(forward) == PieceTypes.EMPTY) {
+        if ((currentState.occupied & (1L << forward)) == 0) {
             if (reachPromotionSquare) {
-                for (int i = 0; i < 4; i++) {
-                    pawnMoves[numMoves] = new Move(square, forward, pawnType, true);
-                    pawnMoves[numMoves].moveWeight += 5;
-                    numMoves++;
-                } // for
+                promotions(square, forward, pawnType, PieceTypes.EMPTY, BASE_WEIGHT + 5, moves);
             } else {
-                pawnMoves[numMoves] = new Move(square, forward, pawnType);
-                for (int cap : captures) {
-                    pawnMoves[numMoves].moveWeight *= controlsCenter(forward + cap);
-                } // for
-                numMoves++;
-
+                moves.add(PackedMove.encode(square, forward, pawnType, PieceTypes.EMPTY), BASE_WEIGHT * centerWeight);
             } // if/else
 
             /* It can also move 2 squares forward if it's on its starting square. */
-            if (onStartingSquare && currentState.getSquare(square + (2 * direction)) == PieceTypes.EMPTY) {
-                pawnMoves[numMoves] = new Move(square, (square + (2 * direction)), pawnType);
-                for (int cap : captures) {
-                    pawnMoves[numMoves].moveWeight *= controlsCenter(forward + cap);
-                } // for
-                numMoves++;
+            int doubleForward = forward + direction;
+            if (onStartingSquare && (currentState.occupied & (1L << doubleForward)) == 0) {
+                moves.add(PackedMove.encode(square, doubleForward, pawnType, PieceTypes.EMPTY, PieceTypes.EMPTY,
+                        PackedMove.DOUBLE_PUSH_FLAG), BASE_WEIGHT * centerWeight);
             } // if
         } // if
 
-        /* Captures (the diagonal directions) */
-        for (int cap : captures) {
-            int capture = square + cap; // the capture square
-
-            /* Don't check the square if its not valid. */
-            if ((capture > 63) || (capture < 0)) {
-                continue;
-            } // if
-
-            byte piece = currentState.getSquare(capture);
-            /* Check if there is an opponents piece on the capture square. */
-            if ((piece != PieceTypes.EMPTY) && (Board.pieceColor(piece) != color)) {
-                if (reachPromotionSquare) {
-                    for (int i = 0; i < 4; i++) {
-                        pawnMoves[numMoves] = new Move(square, capture, pawnType, true);
-                        pawnMoves[numMoves].moveWeight += 5;
-                        addMoveWeight(piece, pawnMoves[numMoves], 3);
-                        numMoves++;
-                    } // for
-                } else {
-                    pawnMoves[numMoves] = new Move (square, capture, pawnType);
-                    addMoveWeight(piece, pawnMoves[numMoves], 3);
-                    for (int capcap : captures) {
-                        pawnMoves[numMoves].moveWeight *= controlsCenter(forward + capcap);
-                    } // for
-                    numMoves++;
-                } // if/else
-            } // if
+        /* Captures (the diagonal squares holding an opponents piece) */
+        long captures = BitBoards.PAWN_ATTACKS[color][square] & currentState.colorBoards[color ^ 1];
+        for (; captures != 0; captures &= captures - 1) {
+            int capture = Long.numberOfTrailingZeros(captures);
+            byte piece = currentState.squares[capture];
+            if (reachPromotionSquare) {
+                promotions(square, capture, pawnType, piece, addMoveWeight(piece, BASE_WEIGHT + 5, 3), moves);
+            } else {
+                moves.add(PackedMove.encode(square, capture, pawnType, piece),
+                        addMoveWeight(piece, BASE_WEIGHT, 3) * centerWeight);
+            } // if/else
         } // for
 
-        // Need to add en passant.
+        /* En passant, onto the square the opponent's pawn just passed over */
+        int enPassant = currentState.enPassantSquare;
+        if (enPassant != -1 && color == currentState.turnColor && (BitBoards.PAWN_ATTACKS[color][square] & (1L << enPassant)) != 0) {
+            byte oppPawn = (color == PieceTypes.WHITE) ? PieceTypes.BLACK_PAWN : PieceTypes.WHITE_PAWN;
+            moves.add(PackedMove.encode(square, enPassant, pawnType, oppPawn, PieceTypes.EMPTY,
+                    PackedMove.EN_PASSANT_FLAG), addMoveWeight(oppPawn, BASE_WEIGHT, 3) * centerWeight);
+        } // if
+    } // pawnMoves
 
-        return Arrays.copyOfRange(pawnMoves, 0, numMoves);
-    }
+    /**
+     * Adds a pawn's move onto the last row once for each piece it can promote to.
+     *
+     * @param from     The square the pawn is on
+     * @param to       The square on the last row
+     * @param pawn     The pawn being moved
+     * @param captured The piece being captured, or EMPTY
+     * @param weight   The weight of each promotion
+     * @param moves    The list to add the moves to
+     */
+    private static void promotions(int from, int to, byte pawn, byte captured, int weight, MoveList moves) {
+        /* The promoted pieces share the pawn's color bit */
+        for (byte promotion = PieceTypes.WHITE_KNIGHT; promotion <= PieceTypes.WHITE_QUEEN; promotion++) {
+            moves.add(PackedMove.encode(from, to, pawn, captured, (byte) (promotion | (pawn & 8)), 0), weight);
+        } // for
+    } // promotions(int, int, byte, byte, int, MoveList)
 
-    public static Move[] knightMoves(int square, byte color, Board currentState) {
-        /* A knight can only move a maximum of 8 ways. */
-        Move[] knightMoves = new Move[8];
-        int numMoves = 0;
-        int[] LMoves = { -17, -15, -10, -6, 6, 10, 15, 17 };
-        int row = square % 8;
-        int col = square / 8;
+    public static void knightMoves(int square, byte color, Board currentState, MoveList moves) {
         byte knightType = (color == PieceTypes.WHITE) ? PieceTypes.WHITE_KNIGHT : PieceTypes.BLACK_KNIGHT;
 
-        for (int LMove : LMoves) {
-            int endingSquare = square + LMove;
-            int endingRow = endingSquare % 8;
-            int endingCol = endingSquare / 8;
-            /* If it's out of bounds, don't check it. */
-            if ((endingSquare > 63) || endingSquare < 0) {
-                continue;
-            }
-            byte endingPiece = currentState.getSquare(endingSquare);
-            byte endingPieceColor = Board.pieceColor(endingPiece);
-
-            /*
-             * Checks to make sure it doesn't wrap around and stays in bounds and checks to
-             * make sure it is not our piece.
-             */
-            if ((Math.abs(endingRow - row) <= 2)
-                    && (Math.abs(endingCol - col) <= 2)
-                    && ((endingPiece == PieceTypes.EMPTY) || (endingPieceColor != color))) {
-                knightMoves[numMoves] = new Move(square, endingSquare, knightType);
-
-                /* If it is a capture, weight its move a little. */
-                if (endingPieceColor != color && endingPiece != PieceTypes.EMPTY) {
-                    addMoveWeight(endingPiece, knightMoves[numMoves], 2);
-                }
-                for (int center : LMoves) {
-                    knightMoves[numMoves].moveWeight *= controlsCenter(endingSquare + center);
-                }
-                numMoves++;
+        /* Every square the knight attacks that isn't one of our pieces */
+        long targets = BitBoards.KNIGHT_ATTACKS[square] & ~currentState.colorBoards[color];
+        for (; targets != 0; targets &= targets - 1) {
+            int endingSquare = Long.numberOfTrailingZeros(targets);
+            byte endingPiece = currentState.squares[endingSquare];
+            int weight = BASE_WEIGHT;
+
+            /* If it is a capture, weight its move a little. */
+            if (endingPiece != PieceTypes.EMPTY) {
+                weight = addMoveWeight(endingPiece, weight, 2);
             } // if
+            moves.add(PackedMove.encode(square, endingSquare, knightType, endingPiece),
+                    weight * KNIGHT_CENTER_WEIGHT[endingSquare]);
         } // for
-        return Arrays.copyOfRange(knightMoves, 0, numMoves);
     } // knightMoves
 
-    public static Move[] slideMoves(int square, byte color, byte pieceType, Board currentState) {
-        /*
-         * The queen can move 28 different ways if placed correctly, so lets dynamically
-         * size it
-         */
-        List<Move> slideMoves = new ArrayList<>();
-
-        int endingSquare;
-        int endingCol;
-        int endingRow;
-        byte pieceOnSquare;
-
-        /* The offsets for the different move types */
-        int[] straightMoves = { -8, -1, 1, 8 };
-        int[] diagMoves = { -9, -7, 7, 9 };
-
-        int row = square % 8;
-        int col = square / 8;
-
-        /* Generate horizontal mvoes if the piece is a rook or a queen */
-        if ((pieceType == PieceTypes.WHITE_ROOK) || (pieceType == PieceTypes.WHITE_QUEEN)) {
-            for (int move : straightMoves) {
-                endingSquare = square;
-
-                /* Continue moving the piece in the direction while it can */
-                while (true) {
-                    endingSquare += move;
-                    endingRow = endingSquare % 8;
-                    endingCol = endingSquare / 8;
-
-                    /*
-                     * Either the columns or the rows must still be the same to avoid a wraparound.
-                     */
-                    if (endingCol != col && endingRow != row) {
-                        break;
-                    } // if
-
-                    /* Check that it remains within bounds. */
-                    if ((endingSquare > 63 || (endingSquare < 0))) {
-                        break;
-                    } // if
-
-                    pieceOnSquare = currentState.getSquare(endingSquare);
-                    byte pieceColor = Board.pieceColor(pieceOnSquare);
-
-                    /* Check that the square is either empty or an opposing color. */
-                    if (pieceOnSquare != PieceTypes.EMPTY && pieceColor == color) {
-                        break;
-                    } // if
-
-                    slideMoves.add(new Move(square, endingSquare, currentState.getSquare(square)));
-                    /*
-                     * If the piece was starting on h1, it can no longer castle (either there was a
-                     * piece not a rook on h1, or the rook moved)
-                     */
-                    // if ((color == PieceTypes.WHITE && square == 56) || (color == PieceTypes.BLACK && square == 63)) {
-                    //     slideMoves.get(slideMoves.size() - 1).canCastle = false;
-                    // } // if
-
-                    /* If it was an opponents piece, it can't go any further */
-                    if ((pieceColor != color) && (pieceOnSquare != PieceTypes.EMPTY)) {
-                        addMoveWeight(pieceOnSquare, slideMoves.get(slideMoves.size() - 1), 1);
-                        break;
-                    } // if
-                } // while(true)
+    public static void slideMoves(int square, byte color, byte pieceType, Board currentState, MoveList moves) {
+        long attacks = BitBoards.attacks(pieceType, square, currentState.occupied);
 
-            } // for
-        } // if
+        /* Every attacked square that isn't one of our pieces */
+        long targets = attacks & ~currentState.colorBoards[color];
+        byte piece = currentState.squares[square];
 
-        /* Generate diagonal moves if the piece is a bishop or a queen */
-        if ((pieceType == PieceTypes.WHITE_BISHOP) || (pieceType == PieceTypes.WHITE_QUEEN)) {
-            for (int move : diagMoves) {
-                endingSquare = square;
-
-                /* Continue moving the piece in the direction while it can */
-                while (true) {
-                    endingSquare += move;
-                    endingRow = endingSquare % 8;
-                    endingCol = endingSquare / 8;
-
-                    /*
-                     * The difference between the starting column and ending column
-                     * and starting row and ending row must be equal for it to be a valid move
-                     */
-                    if (Math.abs(endingCol - col) != Math.abs(endingRow - row)) {
-                        break;
-                    } // if
-
-                    /* Check that it remains within bounds. */
-                    if ((endingSquare > 63 || (endingSquare < 0))) {
-                        break;
-                    } // if
-
-                    pieceOnSquare = currentState.getSquare(endingSquare);
-                    byte pieceColor = Board.pieceColor(pieceOnSquare);
-
-                    /* Check that the square is either empty or an opposing color. */
-                    if (pieceOnSquare != PieceTypes.EMPTY && pieceColor == color) {
-                        break;
-                    } // if
-
-                    slideMoves.add(new Move(square, endingSquare, currentState.getSquare(square)));
-
-                    /* If it was an opponents piece, it can't go any further */
-                    if ((pieceOnSquare != PieceTypes.EMPTY) && pieceColor != color) {
-                        addMoveWeight(pieceOnSquare, slideMoves.get(slideMoves.size() - 1), 1);
-                        if (pieceType == PieceTypes.WHITE_BISHOP) {
-                            addMoveWeight(pieceOnSquare, slideMoves.get(slideMoves.size() - 1), 1);
-                        }
-                        break;
-                    } // if
-                } // while(true)
-            } // for
-        } // if
-        return slideMoves.toArray(Move[]::new);
-    } // slideMoves
+        for (; targets != 0; targets &= targets - 1) {
+            int endingSquare = Long.numberOfTrailingZeros(targets);
+            byte pieceOnSquare = currentState.squares[endingSquare];
+            int weight = BASE_WEIGHT;
 
-    public static Move[] kingMoves(int square, byte color, Board currentState) {
-        Move[] kingMoves = new Move[9];
-        int numMoves = 0;
-        int row = square % 8;
-        int col = square / 8;
-        byte kingType = (color == PieceTypes.WHITE) ? PieceTypes.WHITE_KING : PieceTypes.BLACK_KING;
-
-        int[] adjMoves = { -9, -8, -7, -1, 1, 7, 8, 9 };
-
-        for (int move : adjMoves) {
-            int endingSquare = square + move;
-            int endingRow = endingSquare % 8;
-            int endingCol = endingSquare / 8;
-
-            if ((endingSquare < 0) || (endingSquare > 63)) {
-                continue;
-            } // if
-            byte piece = currentState.getSquare(endingSquare);
-            byte pieceColor = Board.pieceColor(piece);
-
-            /*
-             * The move is valid if it is in bounds, and either to an empty square or to a
-             * square with an opponent piece.
-             * It also must be within 1 row and 1 column, or it has wrapped around.
-             */
-            if ((Math.abs(endingRow - row) <= 1)
-                    && (Math.abs(endingCol - col) <= 1)
-                    && ((piece == PieceTypes.EMPTY) || (pieceColor != color))) {
-                kingMoves[numMoves] = new Move(square, endingSquare, kingType);
-                // kingMoves[numMoves].kingSquare = endingSquare;
-                // kingMoves[numMoves].canCastle = false;
-
-                if (pieceColor != color) {
-                    Board.addPieceValue(piece, kingMoves[numMoves].moveWeight);
-                }
-                numMoves++;
+            /* Captures are weighted by the piece taken, bishops twice over */
+            if (pieceOnSquare != PieceTypes.EMPTY) {
+                weight = addMoveWeight(pieceOnSquare, weight, 1);
+                if (pieceType == PieceTypes.WHITE_BISHOP) {
+                    weight = addMoveWeight(pieceOnSquare, weight, 1);
+                } // if
             } // if
+            moves.add(PackedMove.encode(square, endingSquare, piece, pieceOnSquare), weight);
         } // for
-        if (currentState.canCastle) {
-            for (Move move : castleMoves(kingType, currentState)) {
-                move.moveWeight *= 5;
-                kingMoves[numMoves++] = move;
-            }
-        }
-
+    } // slideMoves
 
-        // }
-        return Arrays.copyOfRange(kingMoves, 0, numMoves);
+    public static void kingMoves(int square, byte color, Board currentState, MoveList moves) {
+        byte kingType = (color == PieceTypes.WHITE) ? PieceTypes.WHITE_KING : PieceTypes.BLACK_KING;
 
+        /* Every adjacent square that isn't one of our pieces */
+        long targets = BitBoards.KING_ATTACKS[square] & ~currentState.colorBoards[color];
+        for (; targets != 0; targets &= targets - 1) {
+            int endingSquare = Long.numberOfTrailingZeros(targets);
+            moves.add(PackedMove.encode(square, endingSquare, kingType, currentState.squares[endingSquare]),
+                    BASE_WEIGHT);
+        } // for
+        if (currentState.canCastle && canCastle(kingType, currentState)) {
+            moves.add(PackedMove.encodeCastle(square, kingType), (BASE_WEIGHT + 10) * 5);
+        } // if
     } // kingMoves
 
-    public static Move[] castleMoves(byte king, Board currentState) {
-        ArrayList<Move> castles = new ArrayList<>();
+    /**
+     * Checks if a king can castle kingside.
+     *
+     * @param king         The king that would castle
+     * @param currentState The current board
+     * @return true if the king can castle, otherwise false
+     */
+    public static boolean canCastle(byte king, Board currentState) {
         byte kingColor = Board.pieceColor(king);
+        byte oppColor = (byte) (kingColor ^ 1);
+        int homeSquare = (kingColor == PieceTypes.WHITE) ? 32 : 39;
+        byte rook = (kingColor == PieceTypes.WHITE) ? PieceTypes.WHITE_ROOK : PieceTypes.BLACK_ROOK;
         int kingSquare = (kingColor == PieceTypes.WHITE) ? currentState.whiteKingSquare : currentState.blackKingSquare;
-        Move kingToRight = new Move(kingSquare, kingSquare + 8, king);
-        Move kingToRight2 = new Move(kingSquare, kingSquare + 16, king);
-
-               if (currentState.getSquare(kingSquare + 8) == PieceTypes.EMPTY
-                && currentState.getSquare(kingSquare + 16) == PieceTypes.EMPTY
-                && !currentState.inCheck(kingColor)
-                && !movePiece(kingToRight, currentState).inCheck(kingColor)
-                && !movePiece(kingToRight2, currentState).inCheck(kingColor)) {
-                    castles.add(new Move(-1, -1, king));
-                    castles.get(castles.size() - 1).moveWeight += 10;
-        }
 
-        return castles.toArray(Move[]::new);
+        /*
+         * The king and rook must be in place, the squares between them empty, and the
+         * king can't castle out of or through check.
+         */
+        return kingSquare == homeSquare
+                && currentState.squares[kingSquare + 24] == rook
+                && (currentState.occupied & ((1L << (kingSquare + 8)) | (1L << (kingSquare + 16)))) == 0
+                && !isSquareAttacked(currentState, kingSquare, oppColor)
+                && !isSquareAttacked(currentState, kingSquare + 8, oppColor)
+                && !isSquareAttacked(currentState, kingSquare + 16, oppColor);
+    } // canCastle(byte, Board)
+
+    /**
+     * Checks if a square is attacked by any piece of a color.
+     *
+     * @param board       The board to check
+     * @param square      The square that may be attacked
+     * @param attackColor The color of the attacking pieces
+     * @return true if a piece of attackColor attacks the square, otherwise false
+     */
+    public static boolean isSquareAttacked(Board board, int square, byte attackColor) {
+        return isSquareAttacked(board, square, attackColor, board.occupied);
+    } // isSquareAttacked(Board, int, byte)
+
+    /**
+     * Checks if a square is attacked by any piece of a color, with sliders seeing
+     * through a given occupancy instead of the board's.
+     *
+     * @param board       The board to check
+     * @param square      The square that may be attacked
+     * @param attackColor The color of the attacking pieces
+     * @param occupied    The occupied squares the sliders are blocked by
+     * @return true if a piece of attackColor attacks the square, otherwise false
+     */
+    public static boolean isSquareAttacked(Board board, int square, byte attackColor, long occupied) {
+        int offset = (attackColor == PieceTypes.WHITE) ? 0 : PieceTypes.BLACK_PAWN - PieceTypes.WHITE_PAWN;
+        long[] pieces = board.pieceBoards;
+        long queens = pieces[PieceTypes.WHITE_QUEEN + offset];
+
+        return (BitBoards.PAWN_ATTACKS[attackColor ^ 1][square] & pieces[PieceTypes.WHITE_PAWN + offset]) != 0
+                || (BitBoards.KNIGHT_ATTACKS[square] & pieces[PieceTypes.WHITE_KNIGHT + offset]) != 0
+                || (BitBoards.KING_ATTACKS[square] & pieces[PieceTypes.WHITE_KING + offset]) != 0
+                || (BitBoards.bishopAttacks(square, occupied)
+                        & (pieces[PieceTypes.WHITE_BISHOP + offset] | queens)) != 0
+                || (BitBoards.rookAttacks(square, occupied)
+                        & (pieces[PieceTypes.WHITE_ROOK + offset] | queens)) != 0;
+    } // isSquareAttacked(Board, int, byte, long)
+
+    /**
+     * Finds every piece of a color attacking a square.
+     *
+     * @param board       The board to check
+     * @param square      The square that may be attacked
+     * @param attackColor The color of the attacking pieces
+     * @return A bitboard of the attacking pieces
+     */
+    public static long attackersTo(Board board, int square, byte attackColor) {
+        int offset = (attackColor == PieceTypes.WHITE) ? 0 : PieceTypes.BLACK_PAWN - PieceTypes.WHITE_PAWN;
+        long[] pieces = board.pieceBoards;
+        long queens = pieces[PieceTypes.WHITE_QUEEN + offset];
+
+        return (BitBoards.PAWN_ATTACKS[attackColor ^ 1][square] & pieces[PieceTypes.WHITE_PAWN + offset])
+                | (BitBoards.KNIGHT_ATTACKS[square] & pieces[PieceTypes.WHITE_KNIGHT + offset])
+                | (BitBoards.KING_ATTACKS[square] & pieces[PieceTypes.WHITE_KING + offset])
+                | (BitBoards.bishopAttacks(square, board.occupied) & (pieces[PieceTypes.WHITE_BISHOP + offset] | queens))
+                | (BitBoards.rookAttacks(square, board.occupied) & (pieces[PieceTypes.WHITE_ROOK + offset] | queens));
+    } // attackersTo(Board, int, byte)
 
-    }
+    /**
+     * Finds the pieces of a color that are pinned to their king: the only piece
+     * between the king and an enemy slider on the slider's line.
+     *
+     * @param board      The board to check
+     * @param color      The color of the king
+     * @param kingSquare The square the king is on
+     * @return A bitboard of the pinned pieces
+     */
+    public static long pinnedPieces(Board board, byte color, int kingSquare) {
+        int offset = (color == PieceTypes.WHITE) ? PieceTypes.BLACK_PAWN - PieceTypes.WHITE_PAWN : 0;
+        long[] pieces = board.pieceBoards;
+        long queens = pieces[PieceTypes.WHITE_QUEEN + offset];
+        long enemies = board.colorBoards[color ^ 1];
+
+        /* Enemy sliders that would hit the king if only enemy pieces blocked them */
+        long snipers = (BitBoards.bishopAttacks(kingSquare, enemies) & (pieces[PieceTypes.WHITE_BISHOP + offset] | queens))
+                | (BitBoards.rookAttacks(kingSquare, enemies) & (pieces[PieceTypes.WHITE_ROOK + offset] | queens));
+
+        long pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = BitBoards.BETWEEN[kingSquare][Long.numberOfTrailingZeros(snipers)] & board.occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & board.colorBoards[color];
+            } // if
+        } // for
+        return pinned;
+    } // pinnedPieces(Board, byte, int)
+
+    /**
+     * Checks if a move puts the opposing king in check, without making it. This
+     * looks at the pieces attacking the king once the move's pieces have moved,
+     * so it covers direct and discovered checks, promotions, castling and en
+     * passant.
+     *
+     * @param board The board the move would be played on
+     * @param move  The packed move
+     * @return true if the move gives check, otherwise false
+     */
+    public static boolean givesCheck(Board board, int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        byte piece = PackedMove.piece(move);
+        byte color = Board.pieceColor(piece);
+        int offset = (color == PieceTypes.WHITE) ? 0 : PieceTypes.BLACK_PAWN - PieceTypes.WHITE_PAWN;
+        int kingSquare = (color == PieceTypes.WHITE) ? board.blackKingSquare : board.whiteKingSquare;
+
+        /* Our pieces of each type after the move. Only the moving piece is on from. */
+        long[] pieces = board.pieceBoards;
+        long notFrom = ~(1L << from);
+        long toMask = 1L << to;
+        long pawns = pieces[PieceTypes.WHITE_PAWN + offset] & notFrom;
+        long knights = pieces[PieceTypes.WHITE_KNIGHT + offset] & notFrom;
+        long bishops = pieces[PieceTypes.WHITE_BISHOP + offset] & notFrom;
+        long rooks = pieces[PieceTypes.WHITE_ROOK + offset] & notFrom;
+        long queens = pieces[PieceTypes.WHITE_QUEEN + offset] & notFrom;
+        long kings = pieces[PieceTypes.WHITE_KING + offset] & notFrom;
+        long occupied = (board.occupied & notFrom) | toMask;
+
+        if (PackedMove.isCastle(move)) {
+            /* The rook jumps from beside its corner to beside the king's start */
+            long rookMove = (1L << (from + 24)) | (1L << (from + 8));
+            rooks ^= rookMove;
+            occupied ^= rookMove;
+        } else if (PackedMove.isEnPassant(move)) {
+            occupied &= ~(1L << ((to & ~7) | (from & 7)));
+        } // if/else
+
+        byte newPiece = PackedMove.isPromotion(move) ? PackedMove.promotion(move) : piece;
+        switch (newPiece & 7) {
+            case PieceTypes.WHITE_PAWN -> pawns |= toMask;
+            case PieceTypes.WHITE_KNIGHT -> knights |= toMask;
+            case PieceTypes.WHITE_BISHOP -> bishops |= toMask;
+            case PieceTypes.WHITE_ROOK -> rooks |= toMask;
+            case PieceTypes.WHITE_QUEEN -> queens |= toMask;
+            default -> kings |= toMask;
+        } // switch
+
+        return (BitBoards.PAWN_ATTACKS[color ^ 1][kingSquare] & pawns) != 0
+                || (BitBoards.KNIGHT_ATTACKS[kingSquare] & knights) != 0
+                || (BitBoards.KING_ATTACKS[kingSquare] & kings) != 0
+                || (BitBoards.bishopAttacks(kingSquare, occupied) & (bishops | queens)) != 0
+                || (BitBoards.rookAttacks(kingSquare, occupied) & (rooks | queens)) != 0;
+    } // givesCheck(Board, int)
 
     public static boolean inCheck(Board boardToCheck, byte kingColor) {
         /* The king we want to see if is in check. */
-        byte piece = (kingColor == PieceTypes.WHITE) ? PieceTypes.WHITE_KING : PieceTypes.BLACK_KING;
         int kingSquare = (kingColor == PieceTypes.WHITE) ? boardToCheck.whiteKingSquare : boardToCheck.blackKingSquare;
 
-        return (inCheckFromPawns(kingSquare, piece, boardToCheck) || inCheckFromKnights(kingSquare, piece, boardToCheck)
-                || inCheckFromSlidePiece(kingSquare, piece, boardToCheck)
-                || inCheckfromKings(kingSquare, piece, boardToCheck));
-    }
+        return isSquareAttacked(boardToCheck, kingSquare, (byte) (kingColor ^ 1));
+    } // inCheck(Board, byte)
 
     public static boolean inCheckFromPawns(int kingSquare, byte king, Board board) {
         byte kingColor = Board.pieceColor(king);
-        int[] pawnChecks = (kingColor == PieceTypes.WHITE) ? new int[] { -7, 9 } : new int[] { -9, 7 };
-
         byte oppPawn = (kingColor == PieceTypes.WHITE) ? PieceTypes.BLACK_PAWN : PieceTypes.WHITE_PAWN;
-        for (int move : pawnChecks) {
-            int checkSquare = kingSquare + move;
-
-            /* If it is out of bounds its not possible */
-            if (checkSquare > 63 || checkSquare < 0) {
-                continue;
-            } // if
 
-            /* If the square you move to is an opposite pawn, youre in check. */
-            if (board.getSquare(checkSquare) == oppPawn) {
-                return true;
-            } // if
-        } // for
-        return false;
-    }
+        /* A pawn checks the king from the squares the king would attack as a pawn */
+        return (BitBoards.PAWN_ATTACKS[kingColor][kingSquare] & board.pieceBoards[oppPawn]) != 0;
+    } // inCheckFromPawns(int, byte, Board)
 
     public static boolean inCheckFromKnights(int kingSquare, byte king, Board board) {
-        int[] knightChecks = { -17, -15, -10, -6, 6, 10, 15, 17 };
-        int row = kingSquare % 8;
-        int col = kingSquare / 8;
-        byte kingColor = Board.pieceColor(king);
-
-        byte oppKnight = (kingColor == PieceTypes.WHITE) ? PieceTypes.BLACK_KNIGHT
+        byte oppKnight = (Board.pieceColor(king) == PieceTypes.WHITE) ? PieceTypes.BLACK_KNIGHT
                 : PieceTypes.WHITE_KNIGHT;
-        for (int move : knightChecks) {
-            int checkSquare = kingSquare + move;
-            int checkRow = checkSquare % 8;
-            int checkCol = checkSquare / 8;
-
-            /* If it is out of bounds its not possible */
-            if (checkSquare > 63 || checkSquare < 0) {
-                continue;
-            } // if
-
-            byte checkPiece = board.getSquare(checkSquare);
-
-            if ((Math.abs(checkRow - row) > 2) || (Math.abs(checkCol - col)) > 2) {
-                continue;
-            } // if
-
-            if (checkPiece == oppKnight)
-                return true;
-        } // for
-        return false;
+        return (BitBoards.KNIGHT_ATTACKS[kingSquare] & board.pieceBoards[oppKnight]) != 0;
     } // inCheckFromKnights(int, byte, Board
 
     public static boolean inCheckFromSlidePiece(int kingSquare, byte king, Board board) {
-        int[] horizChecks = { -8, -1, 1, 8 };
-        int[] diagChecks = { -9, -7, 7, 9 };
-        int row = kingSquare % 8;
-        int col = kingSquare / 8;
         byte kingColor = Board.pieceColor(king);
 
         byte oppBishop = (kingColor == PieceTypes.WHITE) ? PieceTypes.BLACK_BISHOP
                 : PieceTypes.WHITE_BISHOP;
         byte oppRook = (kingColor == PieceTypes.WHITE) ? PieceTypes.BLACK_ROOK : PieceTypes.WHITE_ROOK;
         byte oppQueen = (kingColor == PieceTypes.WHITE) ? PieceTypes.BLACK_QUEEN : PieceTypes.WHITE_QUEEN;
+        long queens = board.pieceBoards[oppQueen];
 
-        /* Check for bishops and queens */
-        for (int move : diagChecks) {
-            int checkSquare = kingSquare;
-            /* Move in the diagonal direction */
-            while (true) {
-                checkSquare += move;
-                int checkRow = checkSquare % 8;
-                int checkCol = checkSquare / 8;
-
-                /* Col and row must be the same */
-                if (Math.abs(checkRow - row) != Math.abs(checkCol - col)) {
-                    break;
-                } // if
-
-                if (checkSquare > 63 || checkSquare < 0) {
-                    break;
-                }
-
-                byte checkPiece = board.getSquare(checkSquare);
-
-                /* If it is empty, skip to the next */
-                if (checkPiece == PieceTypes.EMPTY) {
-                    continue;
-                }
-
-                /* If it is a piece of the same color, break the loop */
-                if (Board.pieceColor(checkPiece) == board.turnColor) {
-                    break;
-                } // if
-
-                /* If it is an opposite bishop or queen, youre in check */
-                if (checkPiece == oppQueen || checkPiece == oppBishop) {
-                    return true;
-                } else {
-                    break;
-                } // if/else
-            } // while(true)
-        } // for
-
-        for (int move : horizChecks) {
-            int checkSquare = kingSquare;
-            /* Move in the horizontal direction */
-            while (true) {
-                checkSquare += move;
-                int checkRow = checkSquare % 8;
-                int checkCol = checkSquare / 8;
-
-                /* Col must be the same and row must be the same */
-                if (checkCol != col && checkRow != row) {
-                    break;
-                } // if
-
-                if (checkSquare > 63 || checkSquare < 0) {
-                    break;
-                }
-
-                byte checkPiece = board.getSquare(checkSquare);
-
-                if (checkPiece == PieceTypes.EMPTY) {
-                    continue;
-                }
-
-                if (Board.pieceColor(checkPiece) == board.turnColor) {
-                    break;
-                }
-
-                if (checkPiece == oppQueen || checkPiece == oppRook) {
-                    return true;
-                } else {
-                    break;
-                } // if/else
-            } // while(true)
-        } // for
-        /* If nothing has been found, its not in check from a slide piece */
-        return false;
+        /* Look along the diagonals and the straight lines from the king */
+        return (BitBoards.bishopAttacks(kingSquare, board.occupied) & (board.pieceBoards[oppBishop] | queens)) != 0
+                || (BitBoards.rookAttacks(kingSquare, board.occupied) & (board.pieceBoards[oppRook] | queens)) != 0;
     } // inCheckFromSlidePiece(int, byte, board)
 
     public static boolean inCheckfromKings(int kingSquare, byte king, Board board) {
-        int[] kingChecks = { -9, -8, -7, -1, 1, 7, 8, 9 };
-        int row = kingSquare % 8;
-        int col = kingSquare / 8;
-
         byte oppKing = (Board.pieceColor(king) == PieceTypes.WHITE) ? PieceTypes.BLACK_KING : PieceTypes.WHITE_KING;
-
-        for (int move : kingChecks) {
-            int checkSquare = kingSquare + move;
-            int checkRow = checkSquare % 8;
-            int checkCol = checkSquare / 8;
-
-            /* Check if its in bounds */
-            if (checkSquare < 0 || checkSquare > 63) {
-                break;
-            }
-
-            byte checkPiece = board.getSquare(checkSquare);
-
-            if (Math.abs(checkRow - row) > 1 || Math.abs(checkCol - col) > 1) {
-                break;
-            }
-
-            if (checkPiece == oppKing) {
-                return true;
-            }
-
-        }
-        return false;
-    }
+        return (BitBoards.KING_ATTACKS[kingSquare] & board.pieceBoards[oppKing]) != 0;
+    } // inCheckfromKings(int, byte, Board)
 } // class PieceMoves
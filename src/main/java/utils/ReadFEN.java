@@ -1,5 +1,107 @@
 package utils;
 
+/**
+ * Reads positions written in Forsyth-Edwards Notation.
+ *
+ * The engine only knows kingside castling behind a single canCastle flag, so
+ * the flag is set if either side may still castle kingside (K or k), and
+ * queenside rights are ignored.
+ *
+ * @author Sebastian Manza
+ */
 public class ReadFEN {
-    
-}
+
+    /**
+     * Builds a board from a FEN string, with the engine playing the side to move.
+     *
+     * @param fen The position, e.g.
+     *            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     * @return A board holding the position
+     */
+    public static Board readFEN(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        byte turnColor = (fields.length > 1 && fields[1].equals("b")) ? PieceTypes.BLACK : PieceTypes.WHITE;
+        return readFEN(fen, turnColor);
+    } // readFEN(String)
+
+    /**
+     * Builds a board from a FEN string. The move counters are ignored.
+     *
+     * @param fen         The position
+     * @param engineColor The color the engine is playing as
+     * @return A board holding the position
+     * @throws IllegalArgumentException if the placement or side to move can't be
+     *                                  read
+     */
+    public static Board readFEN(String fen, byte engineColor) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("FEN needs a placement and a side to move: " + fen);
+        } // if
+
+        byte turnColor;
+        switch (fields[1]) {
+            case "w" -> turnColor = PieceTypes.WHITE;
+            case "b" -> turnColor = PieceTypes.BLACK;
+            default -> throw new IllegalArgumentException("Unknown side to move: " + fields[1]);
+        } // switch
+
+        Board board = new Board(turnColor, engineColor);
+        board.clearBoard();
+
+        /* The ranks are listed from the eighth down, each from the a file across */
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN needs 8 ranks: " + fields[0]);
+        } // if
+        for (int i = 0; i < 8; i++) {
+            int row = 7 - i;
+            int col = 0;
+            for (char c : ranks[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    if (col > 7) {
+                        throw new IllegalArgumentException("Rank too long: " + ranks[i]);
+                    } // if
+                    board.setSquare(col * 8 + row, toPiece(c));
+                    col++;
+                } // if/else
+            } // for
+            if (col != 8) {
+                throw new IllegalArgumentException("Rank doesn't cover 8 files: " + ranks[i]);
+            } // if
+        } // for
+
+        String castling = (fields.length > 2) ? fields[2] : "-";
+        board.canCastle = castling.indexOf('K') != -1 || castling.indexOf('k') != -1;
+
+        String enPassant = (fields.length > 3) ? fields[3] : "-";
+        board.enPassantSquare = enPassant.equals("-") ? -1 : UIutils.tosquareIndex(enPassant);
+        return board;
+    } // readFEN(String, byte)
+
+    /**
+     * Converts a FEN piece letter to its piece.
+     *
+     * @param c The letter, upper case for white
+     * @return The piece (defined in PieceTypes)
+     */
+    private static byte toPiece(char c) {
+        return switch (c) {
+            case 'P' -> PieceTypes.WHITE_PAWN;
+            case 'N' -> PieceTypes.WHITE_KNIGHT;
+            case 'B' -> PieceTypes.WHITE_BISHOP;
+            case 'R' -> PieceTypes.WHITE_ROOK;
+            case 'Q' -> PieceTypes.WHITE_QUEEN;
+            case 'K' -> PieceTypes.WHITE_KING;
+            case 'p' -> PieceTypes.BLACK_PAWN;
+            case 'n' -> PieceTypes.BLACK_KNIGHT;
+            case 'b' -> PieceTypes.BLACK_BISHOP;
+            case 'r' -> PieceTypes.BLACK_ROOK;
+            case 'q' -> PieceTypes.BLACK_QUEEN;
+            case 'k' -> PieceTypes.BLACK_KING;
+            default -> throw new IllegalArgumentException("Unknown piece: " + c);
+        }; // switch
+    } // toPiece(char)
+} // class ReadFEN
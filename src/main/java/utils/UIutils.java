@@ -9,17 +9,47 @@ public class UIutils {
     }
 
     public static String toNotation(Move move) {
+        if (move.startingSquare == -1) {
+            return "O-O";
+        } // if
+        return toNotation(move.startingSquare, move.endingSquare);
+    }
+
+    /**
+     * Writes a packed move (see PackedMove) as its starting and ending squares,
+     * with the promoted piece appended if it promotes.
+     *
+     * @param move The packed move
+     * @return The move in the form e2-e4
+     */
+    public static String toNotation(int move) {
+        if (PackedMove.isCastle(move)) {
+            return "O-O";
+        } // if
+        String notation = toNotation(PackedMove.from(move), PackedMove.to(move));
+        switch (PackedMove.promotion(move) & 7) {
+            case PieceTypes.WHITE_KNIGHT -> notation += "=N";
+            case PieceTypes.WHITE_BISHOP -> notation += "=B";
+            case PieceTypes.WHITE_ROOK -> notation += "=R";
+            case PieceTypes.WHITE_QUEEN -> notation += "=Q";
+            default -> {
+            }
+        } // switch
+        return notation;
+    }
+
+    private static String toNotation(int startingSquare, int endingSquare) {
         int col;
         int row;
-        col = move.startingSquare / 8;
-        row = move.startingSquare % 8;
+        col = startingSquare / 8;
+        row = startingSquare % 8;
         StringBuilder str = new StringBuilder();
         str.append((char) (col + (int) 'a'));
         str.append(Integer.toString(row + 1));
         str.append("-");
 
-        col = move.endingSquare / 8;
-        row = move.endingSquare % 8;
+        col = endingSquare / 8;
+        row = endingSquare % 8;
         str.append((char) (col + (int) 'a'));
         str.append(Integer.toString(row + 1));
 
@@ -0,0 +1,83 @@
+package utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of
+ * each piece on its square, the side to move, the castling flag and the en
+ * passant column, so a move only changes the key by the few keys it touches.
+ *
+ * @author Sebastian Manza
+ */
+public class Zobrist {
+
+    /** The seed the keys are drawn from, so keys are the same from run to run. */
+    private static final long SEED = 0x2B7E151628AED2A6L;
+
+    /**
+     * The key of each piece on each square, indexed [piece][square]. The EMPTY row
+     * (and the unused piece values) are all zero, so clearing a square is an XOR
+     * like any other.
+     */
+    public static final long[][] PIECE_KEYS = new long[16][64];
+
+    /** XORed in when it is black's turn. */
+    public static final long BLACK_TO_MOVE_KEY;
+
+    /** XORed in while castling is still allowed. */
+    public static final long CASTLE_KEY;
+
+    /** The key of each column an en passant square can be on. */
+    public static final long[] EN_PASSANT_KEYS = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (byte piece = PieceTypes.WHITE_PAWN; piece <= PieceTypes.BLACK_KING; piece++) {
+            if (piece > PieceTypes.WHITE_KING && piece < PieceTypes.BLACK_PAWN) {
+                continue;
+            } // if
+            for (int square = 0; square < 64; square++) {
+                PIECE_KEYS[piece][square] = random.nextLong();
+            } // for
+        } // for
+        BLACK_TO_MOVE_KEY = random.nextLong();
+        CASTLE_KEY = random.nextLong();
+        for (int col = 0; col < 8; col++) {
+            EN_PASSANT_KEYS[col] = random.nextLong();
+        } // for
+    } // static
+
+    /**
+     * Computes a position's key from scratch. Boards keep their key up to date as
+     * pieces move, so this is only needed to check that key.
+     *
+     * @param board The board to hash
+     * @return The Zobrist key of the position
+     */
+    public static long computeKey(Board board) {
+        long key = 0L;
+        for (int square = 0; square < 64; square++) {
+            key ^= PIECE_KEYS[board.getSquare(square)][square];
+        } // for
+        return key ^ stateKey(board.turnColor, board.canCastle, board.enPassantSquare);
+    } // computeKey(Board)
+
+    /**
+     * The part of a key that doesn't depend on piece placement.
+     *
+     * @param turnColor       The color to move
+     * @param canCastle       Whether castling is still allowed
+     * @param enPassantSquare The en passant square, or -1
+     * @return The XOR of the matching keys
+     */
+    public static long stateKey(byte turnColor, boolean canCastle, int enPassantSquare) {
+        long key = (turnColor == PieceTypes.BLACK) ? BLACK_TO_MOVE_KEY : 0L;
+        if (canCastle) {
+            key ^= CASTLE_KEY;
+        } // if
+        if (enPassantSquare != -1) {
+            key ^= EN_PASSANT_KEYS[enPassantSquare >> 3];
+        } // if
+        return key;
+    } // stateKey(byte, boolean, int)
+} // class Zobrist
@@ -0,0 +1,55 @@
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import utils.Board;
+import utils.Perft;
+import utils.PieceTypes;
+import utils.ReadFEN;
+
+/**
+ * Perft counts of standard positions. The engine only castles kingside behind
+ * one flag shared by both colors, so each position is only checked to a depth
+ * where that can't change the count.
+ */
+public class PerftTest {
+
+    private static void assertPerft(String fen, long... expected) {
+        Board board = ReadFEN.readFEN(fen);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals("depth " + depth, expected[depth - 1], Perft.perft(board, depth));
+        }
+    }
+
+    @Test
+    public void testStartingPosition() {
+        assertPerft(Perft.START_FEN, 20, 400, 8902, 197281, 4865609);
+    }
+
+    @Test
+    public void testStartingPositionMatchesBoard() {
+        Board board = new Board(PieceTypes.WHITE, PieceTypes.WHITE);
+        board.startingPos();
+        assertEquals(ReadFEN.readFEN(Perft.START_FEN), board);
+    }
+
+    @Test
+    public void testEnPassantAndPins() {
+        assertPerft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238, 674624);
+    }
+
+    @Test
+    public void testPromotionsAndCastling() {
+        assertPerft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486);
+    }
+
+    @Test
+    public void testMiddlegame() {
+        assertPerft("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890);
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        Board board = ReadFEN.readFEN(Perft.START_FEN);
+        assertEquals(Perft.perft(board, 4), Perft.parallelPerft(board, 4));
+    }
+}